@@ -0,0 +1,169 @@
+/**
+ * @author rahim
+ */
+package myexpense.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import myexpense.database.DBConnection;
+import myexpense.database.DBQueries;
+import myexpense.logic.TransactionControl;
+import myexpense.models.BatchResult;
+import myexpense.models.Transaction;
+import myexpense.utils.LoggerControl;
+
+/**
+ * The `BenchDatabase` class prepares the SQLite files the benchmarks run
+ * against. A database of `rows` transactions, all in profile 1 of account 1,
+ * is seeded once through the batch insert path and reused by later runs.
+ *
+ * `DBConnection` reads `myexpense.db.url` when it is first loaded, so
+ * `open` must run before any other application class in the benchmark fork.
+ * JMH forks a new JVM for every parameter combination, which keeps each
+ * database size in its own process.
+ */
+public final class BenchDatabase {
+    public static final int ACCOUNT_ID = 1;
+    public static final int PROFILE_ID = 1;
+
+    private static final Path DATA_DIR = Paths.get(System.getProperty("myexpense.bench.dataDir", "target/bench-data"));
+    private static final long SEED = 42L;
+    private static final int SEED_BATCH_SIZE = 100_000;
+    private static final int SEED_CHUNK_SIZE = 1_000;
+    private static final int HISTORY_DAYS = 3 * 365;
+
+    private BenchDatabase() {
+    }
+
+    /**
+     * The `open` method points the application at the seeded database of the
+     * given size, seeding it first if needed.
+     *
+     * @param rows        the number of transactions
+     * @param ledgerCache false to disable the in-memory ledger cache, so every
+     *                    read goes to SQLite
+     * @param copy        true to run on a private copy, for benchmarks that
+     *                    write
+     * @return the database file in use
+     * @throws IOException if the file cannot be seeded or copied
+     */
+    public static Path open(int rows, boolean ledgerCache, boolean copy) throws IOException {
+        LoggerControl.getLogger().setLevel(Level.WARNING);
+        if (!ledgerCache) {
+            System.setProperty("myexpense.cache.maxRows", "0");
+        }
+
+        Files.createDirectories(DATA_DIR);
+        Path seeded = DATA_DIR.resolve("myexpense-" + rows + ".db");
+        Path marker = DATA_DIR.resolve("myexpense-" + rows + ".db.seeded");
+        if (!Files.exists(marker)) {
+            Path seeding = DATA_DIR.resolve("myexpense-" + rows + ".seeding.db");
+            deleteDatabase(seeding);
+            // The seeding runs in a child JVM, so DBConnection can be loaded
+            // again on the target file afterwards
+            runSeeder(seeding, rows);
+            deleteDatabase(seeded);
+            Files.move(seeding, seeded, StandardCopyOption.REPLACE_EXISTING);
+            Files.writeString(marker, Integer.toString(rows));
+        }
+
+        Path file = seeded;
+        if (copy) {
+            file = Files.createTempFile(DATA_DIR, "myexpense-" + rows + "-", ".db");
+            Files.copy(seeded, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.setProperty("myexpense.db.url", "jdbc:sqlite:" + file.toAbsolutePath());
+        return file;
+    }
+
+    /**
+     * The `close` method closes the application connections and deletes the
+     * database if it was a private copy.
+     */
+    public static void close(Path file, boolean copy) throws IOException {
+        DBConnection.shutdown();
+        if (copy) {
+            deleteDatabase(file);
+        }
+    }
+
+    /**
+     * Seeds `args[0]` with `args[1]` transactions. Run in a child JVM by
+     * `open`.
+     */
+    public static void main(String[] args) {
+        LoggerControl.getLogger().setLevel(Level.WARNING);
+        Path file = Paths.get(args[0]);
+        int rows = Integer.parseInt(args[1]);
+        System.setProperty("myexpense.db.url", "jdbc:sqlite:" + file.toAbsolutePath());
+
+        long start = System.nanoTime();
+        DBQueries.createTables();
+        int accountId = DBQueries.insertAccount("bench", "unused");
+        int profileId;
+        try {
+            profileId = DBQueries.insertProfile(accountId, "bench");
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot create the bench profile", e);
+        }
+        if (accountId != ACCOUNT_ID || profileId != PROFILE_ID) {
+            throw new IllegalStateException("The bench database is not empty: " + file);
+        }
+
+        Random random = new Random(SEED);
+        LocalDateTime end = LocalDate.now().plusDays(1).atStartOfDay();
+        long historySeconds = HISTORY_DAYS * 86_400L;
+        List<Transaction> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            boolean income = random.nextInt(4) == 0;
+            long cents = income ? 50_000 + random.nextInt(500_000) : 100 + random.nextInt(20_000);
+            LocalDateTime date = end.minusSeconds(1 + (long) (random.nextDouble() * historySeconds));
+            batch.add(new Transaction(0, profileId, income ? Transaction.Type.INCOME : Transaction.Type.EXPENSE,
+                    cents, "bench " + i, date));
+
+            if (batch.size() == SEED_BATCH_SIZE || i == rows - 1) {
+                BatchResult result = TransactionControl.insertAll(batch, SEED_CHUNK_SIZE);
+                if (result.hasFailures()) {
+                    throw new IllegalStateException("Seeding failed: " + result.failures().get(0));
+                }
+                batch.clear();
+            }
+        }
+        DBConnection.shutdown();
+        System.out.printf("Seeded %s with %d transactions in %d s%n", file.getFileName(), rows,
+                (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    private static void runSeeder(Path file, int rows) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        ProcessBuilder builder = new ProcessBuilder(java.toString(), "-Xmx1g",
+                "-cp", System.getProperty("java.class.path"),
+                BenchDatabase.class.getName(), file.toString(), Integer.toString(rows));
+        builder.inheritIO();
+        try {
+            int exit = builder.start().waitFor();
+            if (exit != 0) {
+                throw new IOException("Seeding " + file + " failed with exit code " + exit);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while seeding " + file, e);
+        }
+    }
+
+    private static void deleteDatabase(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Paths.get(file + "-wal"));
+        Files.deleteIfExists(Paths.get(file + "-shm"));
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * @author rahim
+ */
+package myexpense.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * The `BenchmarkMain` class runs JMH with JSON results by default, written to
+ * `results/jmh-<timestamp>.json`, so every run can be kept and compared. All
+ * the usual JMH options are accepted; `-rf` and `-rff` override the
+ * defaults.
+ */
+public final class BenchmarkMain {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+        }
+        if (!options.contains("-rff")) {
+            Path results = Paths.get("results");
+            Files.createDirectories(results);
+            options.add(0, "-rff");
+            options.add(1, results.resolve("jmh-" + LocalDateTime.now().format(TIMESTAMP) + ".json").toString());
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * @author rahim
+ */
+package myexpense.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import myexpense.logic.TransactionControl;
+import myexpense.models.BatchResult;
+import myexpense.models.Money;
+import myexpense.models.Transaction;
+
+/**
+ * The `InsertBenchmark` class measures the single-row and the batch insert
+ * paths. It writes to a private copy of the seeded database, so the shared
+ * files used by the read benchmarks keep their size. Both benchmarks report
+ * the time per inserted row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class InsertBenchmark {
+    private static final int BATCH_SIZE = 1_000;
+    private static final int CHUNK_SIZE = 500;
+    private static final Money AMOUNT = Money.parse("12.34");
+
+    @Param({ "1000", "100000", "10000000" })
+    public int rows;
+
+    private Path file;
+    private List<Transaction> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchDatabase.open(rows, true, true);
+
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new Transaction(0, BenchDatabase.PROFILE_ID, Transaction.Type.EXPENSE, AMOUNT.cents(),
+                    "batch " + i, null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchDatabase.close(file, true);
+    }
+
+    @Benchmark
+    public int insertTransaction() {
+        return TransactionControl.insert(BenchDatabase.ACCOUNT_ID, BenchDatabase.PROFILE_ID, AMOUNT, "expense",
+                "single");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchResult insertTransactionsBatch() {
+        return TransactionControl.insertAll(batch, CHUNK_SIZE);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * @author rahim
+ */
+package myexpense.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import myexpense.utils.PasswordHasher;
+
+/**
+ * The `PasswordHasherBenchmark` class measures the registration (hash) and
+ * login (verify) paths of `PasswordHasher` for several costs, to choose the
+ * `myexpense.password.iterations` that keeps login under a target latency
+ * (`PasswordHasher.main` gives a quick estimate).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHasherBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({ "PBKDF2_SHA256", "PBKDF2_SHA512" })
+    public PasswordHasher.Algorithm algorithm;
+
+    @Param({ "100000", "310000", "600000" })
+    public int iterations;
+
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        storedHash = PasswordHasher.hashPassword(PASSWORD, algorithm, iterations);
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return PasswordHasher.hashPassword(PASSWORD, algorithm, iterations);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return PasswordHasher.verifyPassword(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    public boolean verifyWrongPassword() {
+        return PasswordHasher.verifyPassword("wrong password", storedHash);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * @author rahim
+ */
+package myexpense.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import myexpense.database.DBQueries;
+import myexpense.logic.InformationsControl;
+import myexpense.models.Money;
+import myexpense.models.Summary;
+import myexpense.models.Transaction;
+
+/**
+ * The `ReadBenchmark` class measures the read paths behind the main window:
+ * loading a profile's transactions and every `InformationsControl`
+ * total, with and without the in-memory ledger cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ReadBenchmark {
+    private static final int ACCOUNT = BenchDatabase.ACCOUNT_ID;
+    private static final int PROFILE = BenchDatabase.PROFILE_ID;
+
+    @Param({ "1000", "100000", "10000000" })
+    public int rows;
+
+    @Param({ "true", "false" })
+    public boolean ledgerCache;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = BenchDatabase.open(rows, ledgerCache, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchDatabase.close(file, false);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByProfile() {
+        return DBQueries.getTransactionsByProfile(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Summary calculateSummary() {
+        return InformationsControl.calculateSummary(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateDailyIncome() {
+        return InformationsControl.calculateDailyIncome(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateDailyExpense() {
+        return InformationsControl.calculateDailyExpense(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateDailyBalance() {
+        return InformationsControl.calculateDailyBalance(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateMonthlyIncome() {
+        return InformationsControl.calculateMonthlyIncome(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateMonthlyExpense() {
+        return InformationsControl.calculateMonthlyExpense(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateMonthlyBalance() {
+        return InformationsControl.calculateMonthlyBalance(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateYearlyIncome() {
+        return InformationsControl.calculateYearlyIncome(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateYearlyExpense() {
+        return InformationsControl.calculateYearlyExpense(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateYearlyBalance() {
+        return InformationsControl.calculateYearlyBalance(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateTotalIncome() {
+        return InformationsControl.calculateTotalIncome(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateTotalExpense() {
+        return InformationsControl.calculateTotalExpense(ACCOUNT, PROFILE);
+    }
+
+    @Benchmark
+    public Money calculateTotalBalance() {
+        return InformationsControl.calculateTotalBalance(ACCOUNT, PROFILE);
+    }
+}
@@ -1,17 +1,34 @@
 package myexpense;
 
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import myexpense.database.DBConnection;
+import myexpense.database.DBExecutor;
 import myexpense.database.DBQueries;
+import myexpense.database.QueryStats;
+import myexpense.ui.MyFunctions;
 import myexpense.utils.LoggerControl;
+import myexpense.utils.PasswordHasher;
+import myexpense.utils.StartupTimer;
 
 public class MyExpense extends Application {
+    // Opened and verified in the background while the login window is shown
+    private static CompletableFuture<Void> databaseReady;
+
     @Override
     public void start(Stage stage) throws Exception {
+        StartupTimer.mark("JavaFX started");
         Parent root = FXMLLoader.load(getClass().getResource("/myexpense/ui/loginWindow.fxml"));
 
         Scene scene = new Scene(root);
@@ -19,14 +36,70 @@ public class MyExpense extends Application {
         stage.setScene(scene);
         stage.setTitle("MyExpense - Login");
         stage.show();
+        StartupTimer.mark("login window shown");
+
+        // The main window is parsed while the user types the credentials
+        CompletableFuture<?> mainWindow = MyFunctions.preloadMainWindow();
+
+        // A training run (see the cds-archive ant target) exits once every
+        // startup phase has run, for the class list to cover them
+        if (Boolean.getBoolean("myexpense.startup.trainingRun")) {
+            CompletableFuture.allOf(databaseReady, mainWindow)
+                    .whenComplete((ignored, error) -> {
+                        LoggerControl.logMessage("Startup phases:\n" + StartupTimer.report(), Level.INFO);
+                        Platform.runLater(Platform::exit);
+                    });
+        }
+    }
+
+    @Override
+    public void stop() {
+        // Finish the pending writes, then close the pooled database connections
+        DBExecutor.shutdown();
+        DBConnection.shutdown();
+        dumpQueryStats();
+        LoggerControl.shutdown();
+    }
+
+    // Method to write the query statistics of the session, an empty
+    // myexpense.stats.file disables it
+    private static void dumpQueryStats() {
+        String file = System.getProperty("myexpense.stats.file", "logs/query-stats.txt");
+        if (file.isBlank()) {
+            return;
+        }
+        try {
+            QueryStats.dump(Paths.get(file));
+        } catch (IOException e) {
+            LoggerControl.logMessage("Error writing query statistics: " + e.getMessage(), Level.WARNING);
+        }
     }
 
     public static void main(String[] args) {
+        StartupTimer.start();
+
         // Init logging
-        LoggerControl.configureLogger();
+        StartupTimer.time("logger", LoggerControl::configureLogger);
+
+        // Init Database in the background, in parallel with the JavaFX startup.
+        // Database work submitted meanwhile (e.g. a fast login) waits for it.
+        boolean rebuildRollups = Arrays.asList(args).contains("--rebuild-rollups");
+        databaseReady = CompletableFuture.runAsync(() -> {
+            StartupTimer.time("database schema", DBQueries::createTables);
+            if (rebuildRollups) {
+                DBQueries.rebuildDailyTotals();
+                DBQueries.rebuildSearchIndex();
+            }
+        }, task -> Thread.ofPlatform().daemon().name("startup-db").start(task));
+        DBExecutor.startAfter(databaseReady);
 
-        // Init Database
-        DBQueries.createTables();
+        // Warm the login path: reader connection, username filter, and the
+        // key derivation provider
+        databaseReady.thenRunAsync(() -> StartupTimer.time("login warm-up", () -> {
+            DBQueries.warmUp();
+            PasswordHasher.verifyPassword("",
+                    PasswordHasher.hashPassword("", PasswordHasher.Algorithm.PBKDF2_SHA256, 1));
+        }));
 
         // Launch JavaFX
         launch(args);
@@ -0,0 +1,167 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.time.LocalDate;
+
+/**
+ * The `BalanceIndex` class holds the income and expense of a profile per day
+ * in two Fenwick trees (binary indexed trees), so the totals of any range of
+ * days, and the balance before any day, are answered in O(log d) and a
+ * transaction is added or removed in O(log d), d being the number of days
+ * covered.
+ *
+ * The trees cover a window of days that grows, by doubling, when a
+ * transaction falls outside it. Transactions without a date are kept apart
+ * and count as older than every day.
+ *
+ * The class is not thread-safe, `LedgerCache` guards it.
+ */
+class BalanceIndex {
+    private static final int MIN_CAPACITY = 1_024;
+
+    // Epoch day of the first slot, slot i of the trees is at index i + 1
+    private long origin;
+    private long[] income = new long[0];
+    private long[] expense = new long[0];
+    private long undatedIncome = 0;
+    private long undatedExpense = 0;
+
+    /**
+     * The `add` method adds amounts to a day, negative amounts remove them.
+     *
+     * @param day          the day, or `null` for an undated transaction
+     * @param incomeCents  the income to add
+     * @param expenseCents the expense to add
+     */
+    void add(LocalDate day, long incomeCents, long expenseCents) {
+        if (day == null) {
+            undatedIncome += incomeCents;
+            undatedExpense += expenseCents;
+            return;
+        }
+        long epochDay = day.toEpochDay();
+        if (capacity() == 0 || epochDay < origin || epochDay >= origin + capacity()) {
+            grow(epochDay);
+        }
+        for (int i = (int) (epochDay - origin) + 1; i <= capacity(); i += i & -i) {
+            income[i] += incomeCents;
+            expense[i] += expenseCents;
+        }
+    }
+
+    /**
+     * The `income` function returns the income of a range of days.
+     *
+     * @param from the first day, inclusive
+     * @param to   the last day, exclusive
+     * @return the total income, in cents
+     */
+    long income(LocalDate from, LocalDate to) {
+        return prefix(income, to) - prefix(income, from);
+    }
+
+    /**
+     * The `expense` function returns the expense of a range of days.
+     *
+     * @param from the first day, inclusive
+     * @param to   the last day, exclusive
+     * @return the total expense, in cents
+     */
+    long expense(LocalDate from, LocalDate to) {
+        return prefix(expense, to) - prefix(expense, from);
+    }
+
+    /**
+     * The `balanceBefore` function returns the balance of every transaction
+     * dated before a day, the undated ones included.
+     *
+     * @param day the day, exclusive
+     * @return the balance, in cents
+     */
+    long balanceBefore(LocalDate day) {
+        return undatedIncome - undatedExpense + prefix(income, day) - prefix(expense, day);
+    }
+
+    private int capacity() {
+        return income.length == 0 ? 0 : income.length - 1;
+    }
+
+    // Sum of the slots before a day
+    private long prefix(long[] tree, LocalDate day) {
+        long end = Math.max(0, Math.min(day.toEpochDay() - origin, capacity()));
+        long sum = 0;
+        for (int i = (int) end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Widens the window to include a day, keeping the current totals. The
+    // window doubles so growing costs O(d) amortized over the insertions.
+    private void grow(long epochDay) {
+        int oldCapacity = capacity();
+        long[] incomeDays = values(income);
+        long[] expenseDays = values(expense);
+
+        long first = oldCapacity == 0 ? epochDay : Math.min(origin, epochDay);
+        long last = oldCapacity == 0 ? epochDay : Math.max(origin + oldCapacity - 1, epochDay);
+        long capacity = Math.max(MIN_CAPACITY, oldCapacity * 2L);
+        while (capacity < last - first + 1) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE - 1) {
+            throw new IllegalStateException("Date range too large for the balance index");
+        }
+        // Leave the new room on the side that grew, the first window is
+        // centred on its day
+        long newOrigin;
+        if (oldCapacity == 0) {
+            newOrigin = epochDay - capacity / 2;
+        } else if (epochDay < origin) {
+            newOrigin = last - capacity + 1;
+        } else {
+            newOrigin = first;
+        }
+
+        income = new long[(int) capacity + 1];
+        expense = new long[(int) capacity + 1];
+        long shift = origin - newOrigin;
+        for (int i = 0; i < oldCapacity; i++) {
+            income[(int) (i + shift) + 1] = incomeDays[i];
+            expense[(int) (i + shift) + 1] = expenseDays[i];
+        }
+        origin = newOrigin;
+        build(income);
+        build(expense);
+    }
+
+    // Per-day values of a tree, the inverse of build, in O(d)
+    private static long[] values(long[] tree) {
+        int capacity = tree.length == 0 ? 0 : tree.length - 1;
+        long[] days = new long[capacity];
+        long[] copy = tree.clone();
+        for (int i = capacity; i > 0; i--) {
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                copy[parent] -= copy[i];
+            }
+        }
+        for (int i = 1; i <= capacity; i++) {
+            days[i - 1] = copy[i];
+        }
+        return days;
+    }
+
+    // Turns per-day values at index 1..d into a tree, in O(d)
+    private static void build(long[] tree) {
+        int capacity = tree.length - 1;
+        for (int i = 1; i <= capacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -6,52 +6,294 @@ package myexpense.database;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 import myexpense.utils.LoggerControl;
 
 /**
- * The `DBConnection` class in Java provides a method `getInstance()` to
- * establish a
- * database connection using JDBC and returns the connection if successful.
+ * The `DBConnection` class manages the long-lived SQLite connections of the
+ * application. It keeps a small bounded pool of read connections and one
+ * dedicated writer connection, so queries no longer reopen the database file.
+ *
+ * Connections are borrowed with `getReader()` or `getWriter()` and given back
+ * by closing them, which keeps the try-with-resources pattern of the callers.
+ * Prepared statements are cached per physical connection.
+ *
+ * The settings are read from system properties:
+ * `myexpense.db.url`, `myexpense.db.poolSize`, `myexpense.db.borrowTimeoutMs`,
+ * `myexpense.db.journalMode`, `myexpense.db.synchronous`,
+ * `myexpense.db.cacheSize` and `myexpense.db.mmapSize`.
  */
 public class DBConnection {
-    private static final String URL = "jdbc:sqlite:MyExpenseDB.db"; // SQLite database file
-    private static Connection instance = null;
+    private static final String URL = System.getProperty("myexpense.db.url", "jdbc:sqlite:MyExpenseDB.db");
+    private static final int POOL_SIZE = Integer.getInteger("myexpense.db.poolSize", 4);
+    private static final long BORROW_TIMEOUT_MS = Long.getLong("myexpense.db.borrowTimeoutMs", 30_000L);
+
+    private static PragmaProfile pragmaProfile = PragmaProfile.fromSystemProperties();
+
+    private static final BlockingQueue<PooledConnection> idleReaders = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final List<PooledConnection> allReaders = new ArrayList<>();
+    private static final AtomicInteger openReaders = new AtomicInteger();
+
+    private static final ReentrantLock writerLock = new ReentrantLock(true);
+    private static PooledConnection writer = null;
+
+    private static final AtomicLong connectionsOpened = new AtomicLong();
+    private static final AtomicLong totalOpenNanos = new AtomicLong();
+    private static final AtomicLong borrows = new AtomicLong();
+    private static final AtomicLong totalWaitNanos = new AtomicLong();
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
 
     private DBConnection() {
     }
 
     /**
-     * The getInstance method returns a Connection instance, creating one if it
-     * doesn't already exist or if the previous connection is closed.
+     * The `PragmaProfile` record holds the PRAGMA settings applied to every
+     * connection when it is opened.
+     *
+     * @param journalMode the journal mode, e.g. `WAL`
+     * @param synchronous the synchronous level, e.g. `NORMAL`
+     * @param cacheSize   the page cache size, negative values are in KiB
+     * @param mmapSize    the maximum number of bytes to memory-map
+     */
+    public record PragmaProfile(String journalMode, String synchronous, int cacheSize, long mmapSize) {
+
+        public static PragmaProfile fromSystemProperties() {
+            return new PragmaProfile(
+                    System.getProperty("myexpense.db.journalMode", "WAL"),
+                    System.getProperty("myexpense.db.synchronous", "NORMAL"),
+                    Integer.getInteger("myexpense.db.cacheSize", -8000),
+                    Long.getLong("myexpense.db.mmapSize", 268_435_456L));
+        }
+    }
+
+    /**
+     * The `PoolMetrics` record is a snapshot of the connection manager counters.
+     *
+     * @param connectionsOpened number of physical connections opened
+     * @param totalOpenNanos    total time spent opening physical connections
+     * @param borrows           number of connections handed out
+     * @param totalWaitNanos    total time spent acquiring a connection
+     * @param maxWaitNanos      longest single wait for a connection
+     * @param statementHits     prepared statements served from the cache
+     * @param statementMisses   prepared statements that had to be prepared
+     */
+    public record PoolMetrics(long connectionsOpened, long totalOpenNanos, long borrows, long totalWaitNanos, long maxWaitNanos,
+            long statementHits, long statementMisses) {
+
+        public double averageWaitMillis() {
+            return borrows == 0 ? 0 : totalWaitNanos / (double) borrows / 1_000_000.0;
+        }
+    }
+
+    /**
+     * The `setPragmaProfile` method replaces the PRAGMA profile. It only applies
+     * to connections opened afterwards, so it should be called before the first
+     * query.
+     *
+     * @param profile the new PRAGMA profile
+     */
+    public static synchronized void setPragmaProfile(PragmaProfile profile) {
+        pragmaProfile = profile;
+    }
+
+    /**
+     * The getReader method borrows a read-only connection from the pool, opening
+     * a new one while the pool is not full and waiting otherwise.
      *
-     * @return A `Connection` object if successful, or null if an error occurs.
+     * @return A `Connection` that is given back to the pool when closed.
+     * @throws SQLException if no connection could be opened or borrowed in time.
      */
-    public static Connection getInstance() {
-        if (instance == null || isConnectionClosed()) { // Check if instance is null or closed
+    public static Connection getReader() throws SQLException {
+        long start = System.nanoTime();
+        PooledConnection pooled = idleReaders.poll();
+
+        if (pooled == null && openReaders.incrementAndGet() <= POOL_SIZE) {
             try {
-                instance = DriverManager.getConnection(URL);
-                LoggerControl.logMessage("Connected to database", Level.FINEST);
+                pooled = open(true);
+                synchronized (allReaders) {
+                    allReaders.add(pooled);
+                }
             } catch (SQLException e) {
-                LoggerControl.logMessage("Error initializing connection: " + e.getMessage(), Level.SEVERE);
-                instance = null; // Set instance to null if connection fails
+                openReaders.decrementAndGet();
+                throw e;
+            }
+        } else if (pooled == null) {
+            openReaders.decrementAndGet();
+            try {
+                pooled = idleReaders.poll(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a read connection", e);
+            }
+            if (pooled == null) {
+                throw new SQLException("Timed out waiting for a read connection");
             }
         }
-        return instance;
+
+        long waited = recordBorrow(start);
+        PooledConnection borrowed = pooled;
+        return borrowed.borrow(() -> release(borrowed), waited);
     }
 
     /**
-     * Helper method to check if the current connection is closed.
-     * 
-     * @return true if the connection is closed, false otherwise.
+     * The getWriter method borrows the single writer connection, waiting until
+     * the current writer gives it back. Nested borrows on the same thread share
+     * the connection.
+     *
+     * @return A `Connection` that releases the writer lane when closed.
+     * @throws SQLException if the connection could not be opened or borrowed in
+     *                      time.
      */
-    private static boolean isConnectionClosed() {
+    public static Connection getWriter() throws SQLException {
+        long start = System.nanoTime();
         try {
-            return instance == null || instance.isClosed();
+            if (!writerLock.tryLock(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the write connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write connection", e);
+        }
+
+        try {
+            if (writer == null || writer.isBroken()) {
+                writer = open(false);
+            }
         } catch (SQLException e) {
-            LoggerControl.logMessage("Error checking connection status: " + e.getMessage(), Level.SEVERE);
-            return true;
+            writerLock.unlock();
+            throw e;
         }
+
+        long waited = recordBorrow(start);
+        PooledConnection current = writer;
+        return current.borrow(() -> releaseWriter(current), waited);
+    }
+
+    /**
+     * The getAcquireNanos method returns how long the borrower of a connection
+     * waited for it, including opening it if needed.
+     *
+     * @param conn a connection returned by `getReader()` or `getWriter()`
+     * @return the wait in nanoseconds, 0 for any other connection
+     */
+    public static long getAcquireNanos(Connection conn) {
+        return PooledConnection.acquireNanos(conn);
+    }
+
+    /**
+     * The getMetrics method returns a snapshot of the pool counters.
+     *
+     * @return the current `PoolMetrics`
+     */
+    public static PoolMetrics getMetrics() {
+        long hits = 0;
+        long misses = 0;
+        synchronized (allReaders) {
+            for (PooledConnection reader : allReaders) {
+                hits += reader.getStatementHits();
+                misses += reader.getStatementMisses();
+            }
+        }
+        PooledConnection currentWriter = writer;
+        if (currentWriter != null) {
+            hits += currentWriter.getStatementHits();
+            misses += currentWriter.getStatementMisses();
+        }
+        return new PoolMetrics(connectionsOpened.get(), totalOpenNanos.get(), borrows.get(), totalWaitNanos.get(), maxWaitNanos.get(),
+                hits, misses);
+    }
+
+    /**
+     * The `shutdown` method closes every physical connection. It is called when
+     * the application exits. A reader borrowed at that time is closed when it
+     * is given back, so the count of open readers stays exact.
+     */
+    public static void shutdown() {
+        writerLock.lock();
+        try {
+            if (writer != null) {
+                writer.closePhysical();
+                writer = null;
+            }
+        } finally {
+            writerLock.unlock();
+        }
+
+        synchronized (allReaders) {
+            PooledConnection reader;
+            while ((reader = idleReaders.poll()) != null) {
+                reader.closePhysical();
+                openReaders.decrementAndGet();
+            }
+            allReaders.clear();
+        }
+        LoggerControl.logMessage("Database connections closed", Level.FINEST);
+    }
+
+    // Opens a physical connection and applies the PRAGMA profile
+    private static PooledConnection open(boolean readOnly) throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = DriverManager.getConnection(URL);
+        PragmaProfile profile = pragmaProfile;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = " + profile.journalMode());
+            stmt.execute("PRAGMA synchronous = " + profile.synchronous());
+            stmt.execute("PRAGMA cache_size = " + profile.cacheSize());
+            stmt.execute("PRAGMA mmap_size = " + profile.mmapSize());
+            stmt.execute("PRAGMA busy_timeout = " + BORROW_TIMEOUT_MS);
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+
+        connectionsOpened.incrementAndGet();
+        totalOpenNanos.addAndGet(System.nanoTime() - start);
+        LoggerControl.logMessage(() -> "Connected to database (" + (readOnly ? "reader" : "writer") + ")", Level.FINEST);
+        return new PooledConnection(conn);
+    }
+
+    private static void release(PooledConnection pooled) {
+        synchronized (allReaders) {
+            // A reader dropped by shutdown while borrowed is not pooled again
+            if (!pooled.isBroken() && allReaders.contains(pooled)) {
+                idleReaders.offer(pooled);
+                return;
+            }
+            allReaders.remove(pooled);
+        }
+        pooled.closePhysical();
+        openReaders.decrementAndGet();
+    }
+
+    private static void releaseWriter(PooledConnection pooled) {
+        try {
+            // Only the outermost borrow restores the connection state
+            if (writerLock.getHoldCount() == 1) {
+                pooled.reset();
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private static long recordBorrow(long start) {
+        long waited = System.nanoTime() - start;
+        borrows.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        return waited;
     }
 }
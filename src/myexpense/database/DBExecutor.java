@@ -0,0 +1,98 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import myexpense.utils.LoggerControl;
+
+/**
+ * The `DBExecutor` class runs database work away from the JavaFX application
+ * thread. Reads run on virtual threads, their concurrency is bounded by the
+ * read connection pool. Writes run one after the other on a single writer
+ * lane, in submission order.
+ *
+ * The returned futures complete on the executor threads, UI code applies the
+ * result with `thenAcceptAsync(..., Platform::runLater)`.
+ */
+public class DBExecutor {
+    private static final ExecutorService readers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("db-reader-", 0).factory());
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("db-writer").factory());
+
+    // Completed once the database is ready, work submitted earlier waits
+    private static volatile CompletableFuture<?> ready = CompletableFuture.completedFuture(null);
+
+    private DBExecutor() {
+    }
+
+    /**
+     * The `read` method runs a query on a virtual thread.
+     *
+     * @param <T>   the type of the result
+     * @param query the query to run
+     * @return a future completed with the result of the query
+     */
+    public static <T> CompletableFuture<T> read(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            awaitReady();
+            return query.get();
+        }, readers);
+    }
+
+    /**
+     * The `write` method runs an update on the writer lane. Updates submitted
+     * from any thread are applied one at a time, in submission order.
+     *
+     * @param <T>    the type of the result
+     * @param update the update to run
+     * @return a future completed with the result of the update
+     */
+    public static <T> CompletableFuture<T> write(Supplier<T> update) {
+        return CompletableFuture.supplyAsync(() -> {
+            awaitReady();
+            return update.get();
+        }, writer);
+    }
+
+    /**
+     * The `startAfter` method holds the reads and writes until the database is
+     * opened and its schema verified, so startup can do it in the background
+     * while the first window is shown.
+     *
+     * @param startup completes when the database is ready
+     */
+    public static void startAfter(CompletableFuture<?> startup) {
+        ready = startup;
+    }
+
+    private static void awaitReady() {
+        CompletableFuture<?> current = ready;
+        if (!current.isDone()) {
+            current.join();
+        }
+    }
+
+    /**
+     * The `shutdown` method stops accepting work and waits briefly for the
+     * pending writes, so they are not lost when the application exits.
+     */
+    public static void shutdown() {
+        readers.shutdown();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                LoggerControl.logMessage("Pending database writes did not finish in time", Level.WARNING);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
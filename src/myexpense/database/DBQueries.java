@@ -8,12 +8,31 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
+import myexpense.models.BatchResult;
+import myexpense.models.CategoryTotal;
+import myexpense.models.ChartResolution;
+import myexpense.models.Credentials;
+import myexpense.models.Money;
+import myexpense.models.PeriodTotal;
+import myexpense.models.Summary;
+import myexpense.models.Transaction;
+import myexpense.models.TransactionFilter;
+import myexpense.utils.AppTime;
 import myexpense.utils.ExceptionControl.DuplicateException;
 import myexpense.utils.LoggerControl;
 
@@ -23,12 +42,64 @@ import myexpense.utils.LoggerControl;
  * transactions by profile.
  */
 public class DBQueries {
+    // Rows fetched per round trip when streaming a large result
+    private static final int STREAM_FETCH_SIZE = 1_000;
+
+    // Stored in PRAGMA user_version, 1 is amounts as INTEGER cents, 2 adds
+    // the transaction categories, 3 the comment search index, 4 the Dates
+    // dimension, 5 clears the category 0 written for uncategorized rows
+    private static final int SCHEMA_VERSION = 5;
+
+    // The columns of the Dates table for the `day` column of a source, days
+    // are yyyy-MM-dd text and weeks start on Monday
+    private static final String DATES_SELECT = """
+            SELECT day,
+                   date(day, '-' || ((CAST(strftime('%%w', day) AS INTEGER) + 6) %% 7) || ' days') AS week_start,
+                   date(day, 'start of month') AS month_start,
+                   date(day, 'start of month',
+                        '-' || ((CAST(strftime('%%m', day) AS INTEGER) - 1) %% 3) || ' months') AS quarter_start,
+                   date(day, 'start of year') AS year_start,
+                   date(day, 'start of month',
+                        '-' || ((CAST(strftime('%%m', day) AS INTEGER) + 12 - %d) %% 12) || ' months')
+                        AS fiscal_year_start
+            """.formatted(AppTime.FISCAL_YEAR_START.getValue());
+
+    // Per-statement latency and row counts, see QueryStats.snapshots()
+    private static final QueryStats REBUILD_DAILY_TOTALS_STATS = QueryStats.of("rebuildDailyTotals");
+    private static final QueryStats INSERT_ACCOUNT_STATS = QueryStats.of("insertAccount");
+    private static final QueryStats CREDENTIALS_STATS = QueryStats.of("getCredentials");
+    private static final QueryStats PASSWORD_HASH_STATS = QueryStats.of("getPasswordHash");
+    private static final QueryStats UPDATE_PASSWORD_HASH_STATS = QueryStats.of("updatePasswordHash");
+    private static final QueryStats INSERT_PROFILE_STATS = QueryStats.of("insertProfile");
+    private static final QueryStats INSERT_TRANSACTION_STATS = QueryStats.of("insertTransaction");
+    private static final QueryStats INSERT_TRANSACTIONS_STATS = QueryStats.of("insertTransactions");
+    private static final QueryStats READ_BACK_STATS = QueryStats.of("cacheStoredTransaction");
+    private static final QueryStats REMOVE_TRANSACTION_STATS = QueryStats.of("removeTransaction");
+    private static final QueryStats UPDATE_TRANSACTION_STATS = QueryStats.of("updateTransaction");
+    private static final QueryStats TRANSACTION_BY_ID_STATS = QueryStats.of("getTransactionById");
+    private static final QueryStats STREAM_TRANSACTIONS_STATS = QueryStats.of("streamTransactions");
+    private static final QueryStats COUNT_TRANSACTIONS_STATS = QueryStats.of("countTransactions");
+    private static final QueryStats TRANSACTIONS_PAGE_STATS = QueryStats.of("getTransactionsPage");
+    private static final QueryStats TRANSACTIONS_PAGE_AT_STATS = QueryStats.of("getTransactionsPageAt");
+    private static final QueryStats SUMMARY_STATS = QueryStats.of("getTransactionSummary");
+    private static final QueryStats PROFILES_STATS = QueryStats.of("getProfilesByAccount");
+    private static final QueryStats ACCOUNTS_STATS = QueryStats.of("getAllAccounts");
+    private static final QueryStats CATEGORY_STATS = QueryStats.of("getOrCreateCategory");
+    private static final QueryStats CATEGORIES_STATS = QueryStats.of("getCategories");
+    private static final QueryStats SET_CATEGORY_STATS = QueryStats.of("setTransactionCategory");
+    private static final QueryStats CATEGORY_TOTALS_STATS = QueryStats.of("getCategoryTotals");
+    private static final QueryStats REBUILD_SEARCH_STATS = QueryStats.of("rebuildSearchIndex");
+    private static final QueryStats SEARCH_STATS = QueryStats.of("searchTransactions");
+    private static final QueryStats PERIOD_TOTALS_STATS = QueryStats.of("getPeriodTotals");
+    private static final QueryStats BALANCE_STATS = QueryStats.of("getBalance");
+
     // private static final Logger logger =
     // Logger.getLogger(DBQueries.class.getName());
 
     /**
-     * The `createTables` function creates three database tables for accounts,
-     * profiles, and transactions with specified columns and constraints.
+     * The `createTables` function creates the database tables for accounts,
+     * profiles, categories and transactions with specified columns and
+     * constraints, along with the indexes used by the transaction queries.
      */
     public static void createTables() {
         String createAccountsTable = """
@@ -50,31 +121,396 @@ public class DBQueries {
                     );
                 """;
 
+        // Category names are stored once, transactions refer to them by id
+        String createCategoriesTable = """
+                    CREATE TABLE IF NOT EXISTS Categories (
+                        category_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        name TEXT NOT NULL UNIQUE COLLATE NOCASE
+                    );
+                """;
+
         String createTransactionsTable = """
                     CREATE TABLE IF NOT EXISTS Transactions (
                         transaction_id INTEGER PRIMARY KEY AUTOINCREMENT,
                         profile_id INTEGER NOT NULL,
                         transaction_type TEXT CHECK(transaction_type IN ('income', 'expense')) NOT NULL,
-                        amount DECIMAL(10, 2) NOT NULL,
+                        amount INTEGER NOT NULL,
                         comment TEXT NULL,
                         transaction_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        category_id INTEGER NULL REFERENCES Categories (category_id) ON DELETE SET NULL,
                         FOREIGN KEY (profile_id) REFERENCES Profiles (profile_id) ON DELETE CASCADE
                     );
                 """;
 
-        try (Connection conn = DBConnection.getInstance(); Statement stmt = conn.createStatement()) {
+        // Serves the per-category totals: one range per category, and the type
+        // and amount are included so the sums are answered from the index alone
+        String createTransactionsCategoryIndex = """
+                    CREATE INDEX IF NOT EXISTS idx_transactions_profile_category_date
+                    ON Transactions (profile_id, category_id, transaction_date, transaction_type, amount);
+                """;
+
+        // Serves the login lookups, which ignore the case of the username
+        String createUsernameIndex = """
+                    CREATE INDEX IF NOT EXISTS idx_accounts_username_nocase
+                    ON Accounts (username COLLATE NOCASE);
+                """;
+
+        // Serves the per-profile date range queries, amount is included so the
+        // summary aggregates are answered from the index alone
+        String createTransactionsIndex = """
+                    CREATE INDEX IF NOT EXISTS idx_transactions_profile_date_type
+                    ON Transactions (profile_id, transaction_date, transaction_type, amount);
+                """;
+
+        // Serves the keyset pagination of the transactions table
+        String createTransactionsPageIndex = """
+                    CREATE INDEX IF NOT EXISTS idx_transactions_profile_date_id
+                    ON Transactions (profile_id, transaction_date, transaction_id);
+                """;
+
+        // Per-day totals of each profile, kept up to date by the triggers below
+        String createDailyTotalsTable = """
+                    CREATE TABLE IF NOT EXISTS DailyTotals (
+                        profile_id INTEGER NOT NULL,
+                        day TEXT NOT NULL,
+                        income INTEGER NOT NULL DEFAULT 0,
+                        expense INTEGER NOT NULL DEFAULT 0,
+                        count INTEGER NOT NULL DEFAULT 0,
+                        PRIMARY KEY (profile_id, day)
+                    ) WITHOUT ROWID;
+                """;
+
+        // The triggers run inside the statement that changes Transactions, so
+        // the rollup is updated in the same database transaction
+        String createRollupInsertTrigger = """
+                    CREATE TRIGGER IF NOT EXISTS trg_transactions_rollup_insert
+                    AFTER INSERT ON Transactions
+                    BEGIN
+                        INSERT INTO DailyTotals (profile_id, day, income, expense, count)
+                        VALUES (NEW.profile_id, substr(NEW.transaction_date, 1, 10),
+                                CASE WHEN NEW.transaction_type = 'income' THEN NEW.amount ELSE 0 END,
+                                CASE WHEN NEW.transaction_type = 'expense' THEN NEW.amount ELSE 0 END,
+                                1)
+                        ON CONFLICT (profile_id, day) DO UPDATE SET
+                            income = income + excluded.income,
+                            expense = expense + excluded.expense,
+                            count = count + 1;
+                    END;
+                """;
+
+        String createRollupDeleteTrigger = """
+                    CREATE TRIGGER IF NOT EXISTS trg_transactions_rollup_delete
+                    AFTER DELETE ON Transactions
+                    BEGIN
+                        UPDATE DailyTotals SET
+                            income = income - CASE WHEN OLD.transaction_type = 'income' THEN OLD.amount ELSE 0 END,
+                            expense = expense - CASE WHEN OLD.transaction_type = 'expense' THEN OLD.amount ELSE 0 END,
+                            count = count - 1
+                        WHERE profile_id = OLD.profile_id AND day = substr(OLD.transaction_date, 1, 10);
+                        DELETE FROM DailyTotals
+                        WHERE profile_id = OLD.profile_id AND day = substr(OLD.transaction_date, 1, 10) AND count <= 0;
+                    END;
+                """;
+
+        String createRollupUpdateTrigger = """
+                    CREATE TRIGGER IF NOT EXISTS trg_transactions_rollup_update
+                    AFTER UPDATE OF profile_id, transaction_type, amount, transaction_date ON Transactions
+                    BEGIN
+                        UPDATE DailyTotals SET
+                            income = income - CASE WHEN OLD.transaction_type = 'income' THEN OLD.amount ELSE 0 END,
+                            expense = expense - CASE WHEN OLD.transaction_type = 'expense' THEN OLD.amount ELSE 0 END,
+                            count = count - 1
+                        WHERE profile_id = OLD.profile_id AND day = substr(OLD.transaction_date, 1, 10);
+                        DELETE FROM DailyTotals
+                        WHERE profile_id = OLD.profile_id AND day = substr(OLD.transaction_date, 1, 10) AND count <= 0;
+                        INSERT INTO DailyTotals (profile_id, day, income, expense, count)
+                        VALUES (NEW.profile_id, substr(NEW.transaction_date, 1, 10),
+                                CASE WHEN NEW.transaction_type = 'income' THEN NEW.amount ELSE 0 END,
+                                CASE WHEN NEW.transaction_type = 'expense' THEN NEW.amount ELSE 0 END,
+                                1)
+                        ON CONFLICT (profile_id, day) DO UPDATE SET
+                            income = income + excluded.income,
+                            expense = expense + excluded.expense,
+                            count = count + 1;
+                    END;
+                """;
+
+        // Full-text index of the comments. It stores no text of its own
+        // (external content), the triggers below keep it in sync. The prefix
+        // indexes make 2 and 3 character prefix queries a single lookup.
+        String createSearchTable = """
+                    CREATE VIRTUAL TABLE IF NOT EXISTS TransactionsSearch USING fts5 (
+                        comment,
+                        content = 'Transactions',
+                        content_rowid = 'transaction_id',
+                        tokenize = 'unicode61 remove_diacritics 2',
+                        prefix = '2 3'
+                    );
+                """;
+
+        String createSearchInsertTrigger = """
+                    CREATE TRIGGER IF NOT EXISTS trg_transactions_search_insert
+                    AFTER INSERT ON Transactions
+                    WHEN NEW.comment IS NOT NULL
+                    BEGIN
+                        INSERT INTO TransactionsSearch (rowid, comment) VALUES (NEW.transaction_id, NEW.comment);
+                    END;
+                """;
+
+        String createSearchDeleteTrigger = """
+                    CREATE TRIGGER IF NOT EXISTS trg_transactions_search_delete
+                    AFTER DELETE ON Transactions
+                    WHEN OLD.comment IS NOT NULL
+                    BEGIN
+                        INSERT INTO TransactionsSearch (TransactionsSearch, rowid, comment)
+                        VALUES ('delete', OLD.transaction_id, OLD.comment);
+                    END;
+                """;
+
+        String createSearchUpdateTrigger = """
+                    CREATE TRIGGER IF NOT EXISTS trg_transactions_search_update
+                    AFTER UPDATE OF comment ON Transactions
+                    BEGIN
+                        INSERT INTO TransactionsSearch (TransactionsSearch, rowid, comment)
+                        SELECT 'delete', OLD.transaction_id, OLD.comment WHERE OLD.comment IS NOT NULL;
+                        INSERT INTO TransactionsSearch (rowid, comment)
+                        SELECT NEW.transaction_id, NEW.comment WHERE NEW.comment IS NOT NULL;
+                    END;
+                """;
+
+        // Calendar attributes of every day of the rollup, to group it by week,
+        // month, quarter, year or fiscal year with a join instead of date
+        // functions per row. Filled by the trigger below as days appear.
+        String createDatesTable = """
+                    CREATE TABLE IF NOT EXISTS Dates (
+                        day TEXT PRIMARY KEY,
+                        week_start TEXT NOT NULL,
+                        month_start TEXT NOT NULL,
+                        quarter_start TEXT NOT NULL,
+                        year_start TEXT NOT NULL,
+                        fiscal_year_start TEXT NOT NULL
+                    ) WITHOUT ROWID;
+                """;
+
+        // Fires only for new days, the rollup updates of existing days are
+        // not inserts. Created again on every start since it embeds the
+        // fiscal year setting.
+        String createDatesTrigger = """
+                    CREATE TRIGGER trg_dailytotals_dates
+                    AFTER INSERT ON DailyTotals
+                    BEGIN
+                        INSERT OR IGNORE INTO Dates %s FROM (SELECT NEW.day AS day);
+                    END;
+                """.formatted(DATES_SELECT);
+
+        boolean rollupExisted = false;
+        boolean searchExisted = false;
+        boolean datesExisted = false;
+        try (Connection conn = DBConnection.getWriter(); Statement stmt = conn.createStatement()) {
+            int version = userVersion(stmt);
+            boolean transactionsExisted = tableExists(stmt, "Transactions");
+            if (version < 1 && transactionsExisted) {
+                migrateAmountsToCents(conn);
+            }
+            rollupExisted = tableExists(stmt, "DailyTotals");
+            searchExisted = tableExists(stmt, "TransactionsSearch");
+            datesExisted = tableExists(stmt, "Dates");
+
             stmt.execute(createAccountsTable);
             stmt.execute(createProfilesTable);
+            stmt.execute(createCategoriesTable);
             stmt.execute(createTransactionsTable);
+            if (version < 2 && transactionsExisted) {
+                // Existing transactions have no category
+                stmt.execute("ALTER TABLE Transactions ADD COLUMN category_id INTEGER NULL "
+                        + "REFERENCES Categories (category_id) ON DELETE SET NULL");
+                LoggerControl.logMessage("Added the category column to transactions.", Level.INFO);
+            }
+            if (version >= 2 && version < 5) {
+                // The row mapper read uncategorized rows as category 0 and the
+                // batch insert wrote it back, no category has id 0
+                int repaired = stmt.executeUpdate("UPDATE Transactions SET category_id = NULL WHERE category_id = 0");
+                LoggerControl.logMessage("Cleared category 0 of " + repaired + " transactions.", Level.INFO);
+            }
+            stmt.execute(createUsernameIndex);
+            stmt.execute(createTransactionsIndex);
+            stmt.execute(createTransactionsCategoryIndex);
+            stmt.execute(createTransactionsPageIndex);
+            stmt.execute(createDailyTotalsTable);
+            stmt.execute(createRollupInsertTrigger);
+            stmt.execute(createRollupDeleteTrigger);
+            stmt.execute(createRollupUpdateTrigger);
+            stmt.execute(createSearchTable);
+            stmt.execute(createSearchInsertTrigger);
+            stmt.execute(createSearchDeleteTrigger);
+            stmt.execute(createSearchUpdateTrigger);
+            stmt.execute(createDatesTable);
+            stmt.execute("DROP TRIGGER IF EXISTS trg_dailytotals_dates");
+            stmt.execute(createDatesTrigger);
+            if (datesExisted) {
+                // The fiscal year setting changed since the table was filled
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM (" + DATES_SELECT + " FROM Dates) d "
+                        + "JOIN Dates USING (day) WHERE d.fiscal_year_start <> Dates.fiscal_year_start LIMIT 1")) {
+                    if (rs.next()) {
+                        stmt.execute("DELETE FROM Dates");
+                        datesExisted = false;
+                    }
+                }
+            }
+            if (!datesExisted) {
+                int days = stmt.executeUpdate("INSERT OR IGNORE INTO Dates " + DATES_SELECT
+                        + " FROM (SELECT DISTINCT day FROM DailyTotals)");
+                LoggerControl.logMessage("Dates filled: " + days + " days.", Level.INFO);
+            }
+            stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
             LoggerControl.logMessage("All tables have been created.", Level.FINEST);
         } catch (SQLException e) {
             LoggerControl.logMessage("Error creating tables: " + e.getMessage(), Level.SEVERE);
+            return;
+        }
+
+        // Existing transactions predate the rollup, fill it once
+        if (!rollupExisted) {
+            rebuildDailyTotals();
+        }
+        // Same for the comment search index
+        if (!searchExisted) {
+            rebuildSearchIndex();
+        }
+    }
+
+    private static int userVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static boolean tableExists(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * The `migrateAmountsToCents` function converts a version 0 database, where
+     * amounts are `DECIMAL(10, 2)` values read as `double`, to INTEGER cents.
+     * SQLite cannot change a column type, so the Transactions table is rebuilt
+     * and its indexes, triggers, the DailyTotals rollup and the search index
+     * are created again by `createTables`.
+     *
+     * @param conn the writer connection
+     * @throws SQLException if the migration failed, nothing is changed then
+     */
+    private static void migrateAmountsToCents(Connection conn) throws SQLException {
+        String createTransactionsTable = """
+                    CREATE TABLE Transactions_cents (
+                        transaction_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        profile_id INTEGER NOT NULL,
+                        transaction_type TEXT CHECK(transaction_type IN ('income', 'expense')) NOT NULL,
+                        amount INTEGER NOT NULL,
+                        comment TEXT NULL,
+                        transaction_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (profile_id) REFERENCES Profiles (profile_id) ON DELETE CASCADE
+                    );
+                """;
+        String copyTransactions = """
+                    INSERT INTO Transactions_cents
+                        (transaction_id, profile_id, transaction_type, amount, comment, transaction_date)
+                    SELECT transaction_id, profile_id, transaction_type, CAST(ROUND(amount * 100) AS INTEGER),
+                           comment, transaction_date
+                    FROM Transactions;
+                """;
+
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(createTransactionsTable);
+            int rows = stmt.executeUpdate(copyTransactions);
+            // Dropping the table drops its indexes and triggers too
+            stmt.execute("DROP TABLE Transactions");
+            stmt.execute("ALTER TABLE Transactions_cents RENAME TO Transactions");
+            stmt.execute("DROP TABLE IF EXISTS DailyTotals");
+            stmt.execute("DROP TABLE IF EXISTS TransactionsSearch");
+            conn.commit();
+            LoggerControl.logMessage("Migrated " + rows + " transactions to amounts in cents.", Level.INFO);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * The `rebuildDailyTotals` function recomputes the DailyTotals rollup from
+     * the Transactions table. It is run when the rollup is first created, and
+     * can be run again (`--rebuild-rollups`) if it ever drifts.
+     *
+     * @return true if the rollup was rebuilt, false otherwise.
+     */
+    public static boolean rebuildDailyTotals() {
+        String deleteSql = "DELETE FROM DailyTotals";
+        String rebuildSql = """
+                INSERT INTO DailyTotals (profile_id, day, income, expense, count)
+                SELECT profile_id, substr(transaction_date, 1, 10),
+                       SUM(CASE WHEN transaction_type = 'income' THEN amount ELSE 0 END),
+                       SUM(CASE WHEN transaction_type = 'expense' THEN amount ELSE 0 END),
+                       COUNT(*)
+                FROM Transactions
+                GROUP BY profile_id, substr(transaction_date, 1, 10)
+                """;
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(deleteSql);
+                int days = stmt.executeUpdate(rebuildSql);
+                conn.commit();
+                REBUILD_DAILY_TOTALS_STATS.record(start, conn, days);
+                LoggerControl.logMessage("Daily totals rebuilt: " + days + " days.", Level.INFO);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            REBUILD_DAILY_TOTALS_STATS.recordError(start);
+            LoggerControl.logMessage("Error rebuilding daily totals: " + e.getMessage(), Level.SEVERE);
+            return false;
+        }
+    }
+
+    /**
+     * The `rebuildSearchIndex` function recreates the TransactionsSearch
+     * full-text index from the comments of the Transactions table. It is run
+     * when the index is first created, and with `--rebuild-rollups`.
+     *
+     * @return true if the index was rebuilt, false otherwise.
+     */
+    public static boolean rebuildSearchIndex() {
+        String rebuildSql = "INSERT INTO TransactionsSearch (TransactionsSearch) VALUES ('rebuild')";
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(rebuildSql);
+            REBUILD_SEARCH_STATS.record(start, conn, 0);
+            LoggerControl.logMessage(() -> "Search index rebuilt in " + (System.nanoTime() - start) / 1_000_000
+                    + " ms.", Level.INFO);
+            return true;
+        } catch (SQLException e) {
+            REBUILD_SEARCH_STATS.recordError(start);
+            LoggerControl.logMessage("Error rebuilding search index: " + e.getMessage(), Level.SEVERE);
+            return false;
         }
     }
 
     public static int insertAccount(String username, String hashedPassword) {
         String insertSql = "INSERT INTO Accounts (username, password_hash) VALUES (?, ?)";
-        try (Connection conn = DBConnection.getInstance();
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter();
                 PreparedStatement pstmt = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setString(1, username);
@@ -85,53 +521,127 @@ public class DBQueries {
                 try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         int accountId = generatedKeys.getInt(1);
-                        LoggerControl.logMessage("Account created successfully with ID: " + accountId, Level.FINE);
+                        INSERT_ACCOUNT_STATS.record(start, conn, affectedRows);
+                        UsernameFilter.add(username);
+                        LoggerControl.logMessage(() -> "Account created successfully with ID: " + accountId, Level.FINE);
                         return accountId;
                     }
                 }
             }
         } catch (SQLException e) {
+            INSERT_ACCOUNT_STATS.recordError(start);
             LoggerControl.logMessage("Error inserting account: " + e.getMessage(), Level.SEVERE);
         }
         return -1; // Account creation failed
     }
 
+    /**
+     * The `warmUp` function opens a reader connection and loads the username
+     * filter, so the first login does not pay for them. It is run in the
+     * background at startup.
+     */
+    public static void warmUp() {
+        UsernameFilter.mightContain("");
+    }
+
     public static Integer checkAccount(String username) {
-        String sql = "SELECT account_id FROM Accounts WHERE username = ?";
-        try (Connection conn = DBConnection.getInstance();
+        Credentials credentials = getCredentials(username);
+        return credentials == null ? null : credentials.accountId();
+    }
+
+    /**
+     * The `getCredentials` function returns the account id and password hash of
+     * a username in one indexed read. The username is compared without case,
+     * an exact match is preferred if several accounts only differ by case. A
+     * username missing from the `UsernameFilter` is answered without reading
+     * the database.
+     *
+     * @param username the username to look up
+     * @return the credentials of the account, or `null` if the username is not
+     *         found or on error
+     */
+    public static Credentials getCredentials(String username) {
+        if (!UsernameFilter.mightContain(username)) {
+            return null; // Certainly not an account
+        }
+
+        String sql = """
+                SELECT account_id, password_hash
+                FROM Accounts
+                WHERE username = ? COLLATE NOCASE
+                ORDER BY username = ? DESC
+                LIMIT 1
+                """;
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, username);
+            pstmt.setString(2, username);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("account_id");
+                boolean found = rs.next();
+                CREDENTIALS_STATS.record(start, conn, found ? 1 : 0);
+                if (found) {
+                    return new Credentials(rs.getInt("account_id"), rs.getString("password_hash"));
                 }
             }
         } catch (SQLException e) {
-            LoggerControl.logMessage("Error checking account: " + e.getMessage(), Level.INFO);
+            CREDENTIALS_STATS.recordError(start);
+            LoggerControl.logMessage("Error fetching credentials: " + e.getMessage(), Level.INFO);
         }
         return null; // Username not found
     }
 
     public static String getPasswordHash(int accountId) {
         String sql = "SELECT password_hash FROM Accounts WHERE account_id = ?";
-        try (Connection conn = DBConnection.getInstance();
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, accountId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
+                boolean found = rs.next();
+                PASSWORD_HASH_STATS.record(start, conn, found ? 1 : 0);
+                if (found) {
                     return rs.getString("password_hash");
                 }
             }
         } catch (SQLException e) {
+            PASSWORD_HASH_STATS.recordError(start);
             LoggerControl.logMessage("Error fetching password hash: " + e.getMessage(), Level.SEVERE);
         }
         return null; // Account not found or error
     }
 
+    /**
+     * The `updatePasswordHash` function replaces the password hash of an
+     * account, if it is still the expected one, so a concurrent change is not
+     * overwritten.
+     *
+     * @param accountId the target account id
+     * @param oldHash   the hash the account is expected to have
+     * @param newHash   the new hash
+     * @return true if the hash was replaced, false otherwise.
+     */
+    public static boolean updatePasswordHash(int accountId, String oldHash, String newHash) {
+        String sql = "UPDATE Accounts SET password_hash = ? WHERE account_id = ? AND password_hash = ?";
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, newHash);
+            pstmt.setInt(2, accountId);
+            pstmt.setString(3, oldHash);
+            int affectedRows = pstmt.executeUpdate();
+            UPDATE_PASSWORD_HASH_STATS.record(start, conn, affectedRows);
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            UPDATE_PASSWORD_HASH_STATS.recordError(start);
+            LoggerControl.logMessage("Error updating password hash: " + e.getMessage(), Level.WARNING);
+            return false;
+        }
+    }
+
     /**
      * The function `insertProfile` inserts a new profile into a database table
      * using the provided account ID and profile name.
@@ -149,7 +659,8 @@ public class DBQueries {
         String checkSql = "SELECT profile_id FROM Profiles WHERE account_id = ? AND profile_name = ?";
         String insertSql = "INSERT INTO Profiles (account_id, profile_name) VALUES (?, ?)";
 
-        try (Connection conn = DBConnection.getInstance()) {
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter()) {
             // Check for duplicate profile name
             try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
                 checkStmt.setInt(1, accountId);
@@ -175,6 +686,7 @@ public class DBQueries {
                     try (ResultSet generatedKeys = insertStmt.getGeneratedKeys()) {
                         if (generatedKeys.next()) {
                             // Return the newly generated ID
+                            INSERT_PROFILE_STATS.record(start, conn, affectedRows);
                             LoggerControl.logMessage("Profile created successfully.", Level.FINE);
                             return generatedKeys.getInt(1);
                         }
@@ -183,6 +695,7 @@ public class DBQueries {
             }
 
         } catch (SQLException e) {
+            INSERT_PROFILE_STATS.recordError(start);
             LoggerControl.logMessage("Error inserting profile: " + e.getMessage(), Level.WARNING);
         }
 
@@ -208,34 +721,57 @@ public class DBQueries {
      *                        being recorded.
      * @param amount          The `amount` parameter in the `insertTransaction`
      *                        method represents the monetary value of the
-     *                        transaction being inserted into the database. It is a
-     *                        `double` type, which means it can store decimal
-     *                        numbers. This parameter is used to specify the amount
-     *                        of the transaction, such as the purchase amount,
-     *                        transfer
+     *                        transaction being inserted into the database. It is
+     *                        stored exactly, as a number of cents. This parameter
+     *                        is used to specify the amount of the transaction,
+     *                        such as the purchase amount, transfer
      * @return The method `insertTransaction` returns an integer value, which is the
      *         generated transaction ID if the transaction was inserted
      *         successfully. If the insertion failed or encountered an error, it
      *         returns -1.
      */
-    public static int insertTransaction(int accountId, int profileId, String transactionType, double amount,
+    public static int insertTransaction(int accountId, int profileId, String transactionType, Money amount,
             String comment) {
-        String sql = "INSERT INTO Transactions (profile_id, transaction_type, amount, comment) VALUES (?, ?, ?, ?)";
+        return insertTransaction(accountId, profileId, transactionType, amount, comment, null);
+    }
+
+    /**
+     * The `insertTransaction` function inserts a new transaction with a
+     * category, see `insertTransaction(int, int, String, Money, String)`.
+     * The transaction is dated now, in the application time zone.
+     *
+     * @param categoryId the id returned by `getOrCreateCategory`, or `null` for
+     *                   none
+     * @return the generated transaction ID, or -1 on failure
+     */
+    public static int insertTransaction(int accountId, int profileId, String transactionType, Money amount,
+            String comment, Integer categoryId) {
+        String sql = """
+                INSERT INTO Transactions (profile_id, transaction_type, amount, comment, category_id, transaction_date)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """;
 
-        try (Connection conn = DBConnection.getInstance();
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter();
                 PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setInt(1, profileId);
             pstmt.setString(2, transactionType);
-            pstmt.setDouble(3, amount);
+            pstmt.setLong(3, amount.cents());
             pstmt.setString(4, comment);
+            pstmt.setObject(5, categoryId);
+            // Not CURRENT_TIMESTAMP, which is UTC, see AppTime
+            pstmt.setString(6, TransactionRowMapper.formatDate(AppTime.now()));
 
             int affectedRows = pstmt.executeUpdate();
 
             if (affectedRows > 0) {
                 try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) { // Get generated keys
                     if (generatedKeys.next()) {
+                        int transactionId = generatedKeys.getInt(1);
+                        INSERT_TRANSACTION_STATS.record(start, conn, affectedRows);
+                        cacheStoredTransaction(conn, profileId, transactionId);
                         LoggerControl.logMessage("Transaction inserted successfully.", Level.FINE);
-                        return generatedKeys.getInt(1); // Return the generated transaction ID
+                        return transactionId; // Return the generated transaction ID
                     } else {
                         LoggerControl.logMessage("No ID obtained from auto-increment.", Level.INFO);
                         return -1; // No ID generated
@@ -247,11 +783,171 @@ public class DBQueries {
             }
 
         } catch (SQLException e) {
+            INSERT_TRANSACTION_STATS.recordError(start);
             LoggerControl.logMessage("Error inserting transaction: " + e.getMessage(), Level.WARNING);
             return -1; // Return -1 in case of error
         }
     }
 
+    /**
+     * The `insertTransactions` function inserts many transactions in a single
+     * database transaction, so the whole batch costs one commit instead of one
+     * per row. Rows are sent with `addBatch`/`executeBatch` in chunks of
+     * `chunkSize`. A chunk containing an invalid row is replayed row by row, so
+     * the valid rows are still inserted and the invalid ones are reported.
+     *
+     * The `id` of the input transactions is ignored. A `null` date means the
+     * current time in the application time zone.
+     *
+     * @param transactions the transactions to insert, read once in order
+     * @param chunkSize    the number of rows sent per `executeBatch`
+     * @return the generated ids, in input order, and the failed rows
+     */
+    public static BatchResult insertTransactions(Iterable<Transaction> transactions, int chunkSize) {
+        String sql = """
+                INSERT INTO Transactions (profile_id, transaction_type, amount, comment, transaction_date, category_id)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """;
+        int[] ids = new int[Math.max(chunkSize, 16)];
+        int count = 0;
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        Set<Integer> profileIds = new HashSet<>();
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                    PreparedStatement lastIdStmt = conn.prepareStatement("SELECT last_insert_rowid()")) {
+
+                List<Transaction> chunk = new ArrayList<>(chunkSize);
+                Iterator<Transaction> iterator = transactions.iterator();
+                while (iterator.hasNext()) {
+                    Transaction transaction = iterator.next();
+                    chunk.add(transaction);
+                    profileIds.add(transaction.profileId());
+                    if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                        if (count + chunk.size() > ids.length) {
+                            ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + chunk.size()));
+                        }
+                        int offset = count;
+                        count += chunk.size();
+                        insertChunk(conn, pstmt, lastIdStmt, chunk, offset, ids, failures);
+                        chunk.clear();
+                    }
+                }
+                conn.commit();
+                INSERT_TRANSACTIONS_STATS.record(start, conn, count - failures.size());
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            INSERT_TRANSACTIONS_STATS.recordError(start);
+            LoggerControl.logMessage("Error inserting transactions batch: " + e.getMessage(), Level.WARNING);
+            // Nothing was committed
+            Arrays.fill(ids, 0, count, -1);
+            failures.clear();
+            for (int i = 0; i < count; i++) {
+                failures.add(new BatchResult.Failure(i, e.getMessage()));
+            }
+        }
+
+        // The stored dates of the rows are not known here, the cached profiles
+        // are read again on next use
+        for (int profileId : profileIds) {
+            LedgerCache.invalidate(profileId);
+        }
+
+        int inserted = count - failures.size();
+        int failed = failures.size();
+        LoggerControl.logMessage(() -> "Transactions batch inserted: " + inserted + " rows, " + failed + " failed.",
+                Level.FINE);
+        return new BatchResult(Arrays.copyOf(ids, count), failures);
+    }
+
+    // Sends one chunk with executeBatch, falls back to row by row if it fails
+    private static void insertChunk(Connection conn, PreparedStatement pstmt, PreparedStatement lastIdStmt,
+            List<Transaction> chunk, int offset, int[] ids, List<BatchResult.Failure> failures)
+            throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            for (Transaction transaction : chunk) {
+                bindTransaction(pstmt, transaction);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+
+            // AUTOINCREMENT ids are consecutive within the writer's transaction
+            int lastId = lastInsertId(lastIdStmt);
+            for (int i = 0; i < chunk.size(); i++) {
+                ids[offset + i] = lastId - chunk.size() + 1 + i;
+            }
+            conn.releaseSavepoint(savepoint);
+            return;
+        } catch (SQLException | RuntimeException e) {
+            pstmt.clearBatch();
+            conn.rollback(savepoint);
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                bindTransaction(pstmt, chunk.get(i));
+                pstmt.executeUpdate();
+                ids[offset + i] = lastInsertId(lastIdStmt);
+            } catch (SQLException | RuntimeException e) {
+                ids[offset + i] = -1;
+                failures.add(new BatchResult.Failure(offset + i, e.getMessage()));
+            }
+        }
+    }
+
+    private static void bindTransaction(PreparedStatement pstmt, Transaction transaction) throws SQLException {
+        if (transaction.type() == null) {
+            throw new SQLException("Missing transaction type");
+        }
+        pstmt.setInt(1, transaction.profileId());
+        pstmt.setString(2, transaction.type().getDbValue());
+        pstmt.setLong(3, transaction.amountCents());
+        pstmt.setString(4, transaction.comment());
+        pstmt.setString(5, TransactionRowMapper.formatDate(transaction.date() == null ? AppTime.now()
+                : transaction.date()));
+        pstmt.setObject(6, transaction.categoryId());
+    }
+
+    private static int lastInsertId(PreparedStatement lastIdStmt) throws SQLException {
+        try (ResultSet rs = lastIdStmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    // Reads back a written row on the writer connection, so the ledger cache
+    // gets the stored values (e.g. the default date)
+    private static void cacheStoredTransaction(Connection conn, int profileId, int transactionId) {
+        String sql = """
+                SELECT transaction_id, profile_id, transaction_type, amount, comment, transaction_date, category_id
+                FROM Transactions
+                WHERE transaction_id = ?
+                """;
+        long start = System.nanoTime();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, transactionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                boolean found = rs.next();
+                READ_BACK_STATS.record(start, conn, found ? 1 : 0);
+                if (found) {
+                    LedgerCache.put(new TransactionRowMapper(rs).map(rs));
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            READ_BACK_STATS.recordError(start);
+            LoggerControl.logMessage("Error reading back transaction: " + e.getMessage(), Level.WARNING);
+        }
+        LedgerCache.invalidate(profileId);
+    }
+
     /**
      * The `removeTransaction` function deletes a transaction from the database
      * based on the provided transaction ID.
@@ -260,15 +956,26 @@ public class DBQueries {
      * @return true if the transaction was successfully removed, false otherwise.
      */
     public static boolean removeTransaction(int accountId, int profileId, int transactionId) {
-        String sql = "DELETE FROM Transactions WHERE account_id = ? AND profile_id = ? AND transaction_id = ?";
-        try (Connection conn = DBConnection.getInstance();
+        // Transactions have no account_id column, the account owns the profile
+        String sql = """
+                DELETE FROM Transactions
+                WHERE profile_id IN (SELECT profile_id FROM Profiles WHERE account_id = ?)
+                AND profile_id = ? AND transaction_id = ?
+                """;
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, accountId);
             pstmt.setInt(2, profileId);
             pstmt.setInt(3, transactionId);
             int affectedRows = pstmt.executeUpdate();
+            REMOVE_TRANSACTION_STATS.record(start, conn, affectedRows);
+            if (affectedRows > 0) {
+                LedgerCache.remove(profileId, transactionId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
+            REMOVE_TRANSACTION_STATS.recordError(start);
             LoggerControl.logMessage("Error removing transaction: " + e.getMessage(), Level.WARNING);
             return false;
         }
@@ -286,19 +993,30 @@ public class DBQueries {
      * @return true if the transaction was successfully updated, false otherwise.
      */
     public static boolean updateTransaction(int accountId, int profileId, int transactionId, String transactionType,
-            double amount, String comment) {
-        String sql = "UPDATE Transactions SET transaction_type = ?, amount = ?, comment = ? WHERE transaction_id = ? AND account_id = ? AND profile_id = ?";
-        try (Connection conn = DBConnection.getInstance();
+            Money amount, String comment) {
+        String sql = """
+                UPDATE Transactions SET transaction_type = ?, amount = ?, comment = ?
+                WHERE transaction_id = ?
+                AND profile_id IN (SELECT profile_id FROM Profiles WHERE account_id = ?)
+                AND profile_id = ?
+                """;
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, transactionType);
-            pstmt.setDouble(2, amount);
+            pstmt.setLong(2, amount.cents());
             pstmt.setString(3, comment);
             pstmt.setInt(4, transactionId);
             pstmt.setInt(5, accountId);
             pstmt.setInt(6, profileId);
             int affectedRows = pstmt.executeUpdate();
+            UPDATE_TRANSACTION_STATS.record(start, conn, affectedRows);
+            if (affectedRows > 0) {
+                cacheStoredTransaction(conn, profileId, transactionId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
+            UPDATE_TRANSACTION_STATS.recordError(start);
             LoggerControl.logMessage("Error updating transaction: " + e.getMessage(), Level.WARNING);
             return false;
         }
@@ -311,27 +1029,72 @@ public class DBQueries {
      * @param profileId the target profile id
      * @return return a list of transactions
      */
-    public static List<Map<String, Object>> getTransactionsByProfile(int accountId, int profileId) {
-        List<Map<String, Object>> transactionsList = new ArrayList<>();
-        String sql = "SELECT * FROM Transactions WHERE profile_id = ?";
+    public static List<Transaction> getTransactionsByProfile(int accountId, int profileId) {
+        return getTransactionsFiltered(accountId, profileId, TransactionFilter.ALL);
+    }
 
-        try (Connection conn = DBConnection.getInstance(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * The `getTransactionById` function returns a single transaction of a
+     * profile.
+     *
+     * @param accountId     the target account id
+     * @param profileId     the target profile id
+     * @param transactionId the id of the transaction
+     * @return the transaction, or `null` if it does not exist
+     */
+    public static Transaction getTransactionById(int accountId, int profileId, int transactionId) {
+        boolean[] cached = new boolean[1];
+        Transaction transaction = LedgerCache.getTransaction(accountId, profileId, transactionId, cached);
+        if (cached[0]) {
+            return transaction;
+        }
 
-            pstmt.setInt(1, profileId);
+        String sql = """
+                SELECT transaction_id, profile_id, transaction_type, amount, comment, transaction_date, category_id
+                FROM Transactions
+                WHERE transaction_id = ? AND profile_id = ?
+                """;
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, transactionId);
+            pstmt.setInt(2, profileId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, Object> transactionMap = new HashMap<>();
-                    transactionMap.put("profile_id", rs.getInt("profile_id"));
-                    transactionMap.put("transaction_id", rs.getInt("transaction_id"));
-                    transactionMap.put("transaction_type", rs.getString("transaction_type"));
-                    transactionMap.put("amount", rs.getBigDecimal("amount").doubleValue());
-                    transactionMap.put("transaction_date", rs.getTimestamp("transaction_date"));
-
-                    transactionsList.add(transactionMap);
+                boolean found = rs.next();
+                TRANSACTION_BY_ID_STATS.record(start, conn, found ? 1 : 0);
+                if (found) {
+                    return new TransactionRowMapper(rs).map(rs);
                 }
-
             }
+        } catch (SQLException e) {
+            TRANSACTION_BY_ID_STATS.recordError(start);
+            LoggerControl.logMessage("Error fetching transaction: " + e.getMessage(), Level.WARNING);
+        }
+        return null; // Transaction not found or error
+    }
+
+    /**
+     * The `getTransactionsFiltered` function returns the transactions of a
+     * profile matching a filter. The criteria are applied as SQL predicates, so
+     * date ranges are answered from the `(profile_id, transaction_date, ...)`
+     * index instead of scanning the whole profile.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param filter    the criteria to apply, `TransactionFilter.ALL` for none
+     * @return the matching transactions, ordered by date
+     */
+    public static List<Transaction> getTransactionsFiltered(int accountId, int profileId,
+            TransactionFilter filter) {
+        List<Transaction> cached = LedgerCache.filter(accountId, profileId, filter);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Transaction> transactionsList = new ArrayList<>();
+        try {
+            streamTransactions(accountId, profileId, filter, transactionsList::add);
         } catch (SQLException e) {
             LoggerControl.logMessage("Error fetching transactions: " + e.getMessage(), Level.WARNING);
         }
@@ -340,6 +1103,665 @@ public class DBQueries {
         return transactionsList;
     }
 
+    /**
+     * The `streamTransactions` function reads the transactions of a profile
+     * matching a filter and hands them one by one to a consumer, ordered by
+     * date. Rows are read from a forward-only result set with a fetch size, so
+     * no list of the whole result is built.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param filter    the criteria to apply, `TransactionFilter.ALL` for none
+     * @param consumer  receives each transaction, on the calling thread
+     * @return the number of transactions read
+     * @throws SQLException if the query fails
+     */
+    public static long streamTransactions(int accountId, int profileId, TransactionFilter filter,
+            Consumer<Transaction> consumer) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("""
+                SELECT transaction_id, profile_id, transaction_type, amount, comment, transaction_date, category_id
+                FROM Transactions
+                WHERE profile_id = ?""");
+        params.add(profileId);
+
+        if (filter.startDate() != null) {
+            sql.append(" AND transaction_date >= ?");
+            params.add(filter.startDate().toString());
+        }
+        if (filter.endDate() != null) {
+            sql.append(" AND transaction_date < ?");
+            params.add(filter.endDate().plusDays(1).toString());
+        }
+        if (filter.type() != null) {
+            sql.append(" AND transaction_type = ?");
+            params.add(filter.type());
+        }
+        if (filter.minAmount() != null) {
+            sql.append(" AND amount >= ?");
+            params.add(filter.minAmount().cents());
+        }
+        if (filter.maxAmount() != null) {
+            sql.append(" AND amount <= ?");
+            params.add(filter.maxAmount().cents());
+        }
+        sql.append(" ORDER BY transaction_date, transaction_id");
+
+        long count = 0;
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader();
+                PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            pstmt.setFetchDirection(ResultSet.FETCH_FORWARD);
+            pstmt.setFetchSize(STREAM_FETCH_SIZE);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                TransactionRowMapper mapper = new TransactionRowMapper(rs);
+                while (rs.next()) {
+                    consumer.accept(mapper.map(rs));
+                    count++;
+                }
+            }
+            STREAM_TRANSACTIONS_STATS.record(start, conn, count);
+        } catch (SQLException e) {
+            STREAM_TRANSACTIONS_STATS.recordError(start);
+            throw e;
+        }
+        return count;
+    }
+
+    /**
+     * The `countTransactions` function returns the number of transactions of a
+     * profile.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @return the number of transactions, 0 on error
+     */
+    public static int countTransactions(int accountId, int profileId) {
+        String sql = "SELECT COUNT(*) FROM Transactions WHERE profile_id = ?";
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, profileId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    COUNT_TRANSACTIONS_STATS.record(start, conn, 1);
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            COUNT_TRANSACTIONS_STATS.recordError(start);
+            LoggerControl.logMessage("Error counting transactions: " + e.getMessage(), Level.WARNING);
+        }
+        return 0;
+    }
+
+    /**
+     * The `getTransactionsPage` function returns one page of a profile's
+     * transactions, newest first, using keyset pagination on
+     * `(transaction_date, transaction_id)`. The next page starts right after the
+     * last row of the previous one, so every page is an index range scan
+     * whatever its position in the history.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param after     the last transaction of the previous page, or `null` for
+     *                  the first page
+     * @param limit     the maximum number of transactions to return
+     * @return the transactions of the page
+     */
+    public static List<Transaction> getTransactionsPage(int accountId, int profileId, Transaction after,
+            int limit) {
+        String firstPageSql = """
+                SELECT transaction_id, profile_id, transaction_type, amount, comment, transaction_date, category_id
+                FROM Transactions
+                WHERE profile_id = ?
+                ORDER BY transaction_date DESC, transaction_id DESC
+                LIMIT ?
+                """;
+        String nextPageSql = """
+                SELECT transaction_id, profile_id, transaction_type, amount, comment, transaction_date, category_id
+                FROM Transactions
+                WHERE profile_id = ? AND (transaction_date, transaction_id) < (?, ?)
+                ORDER BY transaction_date DESC, transaction_id DESC
+                LIMIT ?
+                """;
+        List<Transaction> page = new ArrayList<>(limit);
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader();
+                PreparedStatement pstmt = conn.prepareStatement(after == null ? firstPageSql : nextPageSql)) {
+            int index = 1;
+            pstmt.setInt(index++, profileId);
+            if (after != null) {
+                pstmt.setString(index++, TransactionRowMapper.formatDate(after.date()));
+                pstmt.setInt(index++, after.id());
+            }
+            pstmt.setInt(index, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                TransactionRowMapper mapper = new TransactionRowMapper(rs);
+                while (rs.next()) {
+                    page.add(mapper.map(rs));
+                }
+            }
+            TRANSACTIONS_PAGE_STATS.record(start, conn, page.size());
+        } catch (SQLException e) {
+            TRANSACTIONS_PAGE_STATS.recordError(start);
+            LoggerControl.logMessage("Error fetching transactions page: " + e.getMessage(), Level.WARNING);
+        }
+        return page;
+    }
+
+    /**
+     * The `getTransactionsPageAt` function returns one page of a profile's
+     * transactions, newest first, starting at a row position. It is only used
+     * to jump to a position whose previous page is unknown, later pages are
+     * then read with `getTransactionsPage`.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param offset    the position of the first row
+     * @param limit     the maximum number of transactions to return
+     * @return the transactions of the page
+     */
+    public static List<Transaction> getTransactionsPageAt(int accountId, int profileId, int offset, int limit) {
+        String sql = """
+                SELECT transaction_id, profile_id, transaction_type, amount, comment, transaction_date, category_id
+                FROM Transactions
+                WHERE profile_id = ?
+                ORDER BY transaction_date DESC, transaction_id DESC
+                LIMIT ? OFFSET ?
+                """;
+        List<Transaction> page = new ArrayList<>(limit);
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, profileId);
+            pstmt.setInt(2, limit);
+            pstmt.setInt(3, offset);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                TransactionRowMapper mapper = new TransactionRowMapper(rs);
+                while (rs.next()) {
+                    page.add(mapper.map(rs));
+                }
+            }
+            TRANSACTIONS_PAGE_AT_STATS.record(start, conn, page.size());
+        } catch (SQLException e) {
+            TRANSACTIONS_PAGE_AT_STATS.recordError(start);
+            LoggerControl.logMessage("Error fetching transactions page: " + e.getMessage(), Level.WARNING);
+        }
+        return page;
+    }
+
+    /**
+     * The `searchTransactions` function finds the transactions of a profile
+     * whose comment contains every word of a search text, best matches first
+     * (BM25 ranking). Each word also matches the words it starts, so "gro"
+     * finds "Groceries". Case and accents are ignored.
+     *
+     * The search is answered by the TransactionsSearch full-text index, so it
+     * reads only the matching rows, never the whole table.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param text      the words to search, any punctuation is ignored
+     * @param offset    the position of the first result
+     * @param limit     the maximum number of transactions to return
+     * @return the matching transactions of the page, empty if the text has no
+     *         word
+     */
+    public static List<Transaction> searchTransactions(int accountId, int profileId, String text, int offset,
+            int limit) {
+        String matchQuery = toMatchQuery(text);
+        if (matchQuery == null) {
+            return new ArrayList<>();
+        }
+        String sql = """
+                SELECT t.transaction_id, t.profile_id, t.transaction_type, t.amount, t.comment,
+                       t.transaction_date, t.category_id
+                FROM TransactionsSearch s
+                JOIN Transactions t ON t.transaction_id = s.rowid
+                WHERE TransactionsSearch MATCH ? AND t.profile_id = ?
+                ORDER BY s.rank, t.transaction_id DESC
+                LIMIT ? OFFSET ?
+                """;
+        List<Transaction> page = new ArrayList<>(limit);
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, matchQuery);
+            pstmt.setInt(2, profileId);
+            pstmt.setInt(3, limit);
+            pstmt.setInt(4, offset);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                TransactionRowMapper mapper = new TransactionRowMapper(rs);
+                while (rs.next()) {
+                    page.add(mapper.map(rs));
+                }
+            }
+            SEARCH_STATS.record(start, conn, page.size());
+        } catch (SQLException e) {
+            SEARCH_STATS.recordError(start);
+            LoggerControl.logMessage("Error searching transactions: " + e.getMessage(), Level.WARNING);
+        }
+        return page;
+    }
+
+    // Method to turn a search text into an FTS5 query: every word quoted, so
+    // user input is never read as query syntax, and marked as a prefix
+    private static String toMatchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        int wordStart = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && wordStart < 0) {
+                wordStart = i;
+            } else if (!inWord && wordStart >= 0) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append('"').append(text, wordStart, i).append("\"*");
+                wordStart = -1;
+            }
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    /**
+     * The `getTransactionSummary` function computes the daily, monthly, yearly
+     * and all-time income and expense totals of a profile from the DailyTotals
+     * rollup, so a year summary reads at most one row per day instead of every
+     * transaction.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param today     the reference day used for the daily, monthly and yearly
+     *                  periods
+     * @return the summary of the profile, or `Summary.EMPTY` on error
+     */
+    public static Summary getTransactionSummary(int accountId, int profileId, LocalDate today) {
+        Summary cached = LedgerCache.summary(accountId, profileId, today);
+        if (cached != null) {
+            return cached;
+        }
+
+        String sql = """
+                    SELECT
+                        SUM(CASE WHEN day >= ? AND day < ? THEN income ELSE 0 END),
+                        SUM(CASE WHEN day >= ? AND day < ? THEN expense ELSE 0 END),
+                        SUM(CASE WHEN day >= ? AND day < ? THEN income ELSE 0 END),
+                        SUM(CASE WHEN day >= ? AND day < ? THEN expense ELSE 0 END),
+                        SUM(CASE WHEN day >= ? AND day < ? THEN income ELSE 0 END),
+                        SUM(CASE WHEN day >= ? AND day < ? THEN expense ELSE 0 END),
+                        SUM(income),
+                        SUM(expense)
+                    FROM DailyTotals
+                    WHERE profile_id = ?
+                """;
+
+        // Period boundaries are computed once, as [start, end) day strings that
+        // compare directly with the rollup days
+        String dayStart = today.toString();
+        String dayEnd = today.plusDays(1).toString();
+        String monthStart = today.withDayOfMonth(1).toString();
+        String monthEnd = today.withDayOfMonth(1).plusMonths(1).toString();
+        String yearStart = today.withDayOfYear(1).toString();
+        String yearEnd = today.withDayOfYear(1).plusYears(1).toString();
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            String[] bounds = { dayStart, dayEnd, monthStart, monthEnd, yearStart, yearEnd };
+            int index = 1;
+            for (int i = 0; i < bounds.length; i += 2) {
+                // Same boundaries for the income and the expense column
+                for (int j = 0; j < 2; j++) {
+                    pstmt.setString(index++, bounds[i]);
+                    pstmt.setString(index++, bounds[i + 1]);
+                }
+            }
+            pstmt.setInt(index, profileId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    SUMMARY_STATS.record(start, conn, 1);
+                    LoggerControl.logMessage("Transaction summary computed successfully.", Level.FINE);
+                    long[] cents = new long[8];
+                    for (int i = 0; i < cents.length; i++) {
+                        cents[i] = rs.getLong(i + 1);
+                    }
+                    return Summary.ofCents(cents);
+                }
+            }
+        } catch (SQLException e) {
+            SUMMARY_STATS.recordError(start);
+            LoggerControl.logMessage("Error computing transaction summary: " + e.getMessage(), Level.WARNING);
+        }
+        return Summary.EMPTY;
+    }
+
+    /**
+     * The `getBalanceAt` function returns the balance of a profile counting
+     * every transaction dated at or before a time. A cached profile answers
+     * from its day index in O(log d), d being the number of days covered,
+     * plus the rows of the last day. A larger one reads the DailyTotals rollup
+     * and the rows of the last day.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param asOf      the time, inclusive
+     * @return the balance, or zero on error
+     */
+    public static Money getBalanceAt(int accountId, int profileId, LocalDateTime asOf) {
+        Long cached = LedgerCache.balanceAt(accountId, profileId, asOf);
+        if (cached != null) {
+            return Money.ofCents(cached);
+        }
+        String sql = """
+                SELECT (SELECT COALESCE(SUM(income - expense), 0) FROM DailyTotals
+                        WHERE profile_id = ?1 AND day < ?2)
+                     + (SELECT COALESCE(SUM(CASE WHEN transaction_type = 'income' THEN amount ELSE -amount END), 0)
+                        FROM Transactions
+                        WHERE profile_id = ?1 AND transaction_date >= ?2 AND transaction_date <= ?3)
+                """;
+        return Money.ofCents(queryBalance(sql, profileId, asOf.toLocalDate().toString(),
+                TransactionRowMapper.formatDate(asOf), 0));
+    }
+
+    /**
+     * The `getRunningBalances` function returns the running balance of a page
+     * of the transactions table: the balance of the profile after each
+     * transaction. Only the balance after the first row is looked up (see
+     * `getBalanceAt`), the others follow from the amounts.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param page      consecutive transactions of the profile, newest first,
+     *                  as returned by `getTransactionsPage`
+     * @return the balance in cents after each transaction of the page
+     */
+    public static long[] getRunningBalances(int accountId, int profileId, List<Transaction> page) {
+        long[] balances = new long[page.size()];
+        if (page.isEmpty()) {
+            return balances;
+        }
+
+        Transaction newest = page.get(0);
+        Long cached = LedgerCache.balanceThrough(accountId, profileId, newest);
+        if (cached != null) {
+            balances[0] = cached;
+        } else {
+            String sql = """
+                    SELECT (SELECT COALESCE(SUM(income - expense), 0) FROM DailyTotals
+                            WHERE profile_id = ?1 AND day < ?2)
+                         + (SELECT COALESCE(SUM(CASE WHEN transaction_type = 'income' THEN amount ELSE -amount END), 0)
+                            FROM Transactions
+                            WHERE profile_id = ?1 AND transaction_date >= ?2
+                            AND (transaction_date, transaction_id) <= (?3, ?4))
+                    """;
+            balances[0] = queryBalance(sql, profileId, newest.date().toLocalDate().toString(),
+                    TransactionRowMapper.formatDate(newest.date()), newest.id());
+        }
+        for (int i = 1; i < balances.length; i++) {
+            balances[i] = balances[i - 1] - page.get(i - 1).signedCents();
+        }
+        return balances;
+    }
+
+    // Runs one of the balance queries: profile, day, time and transaction id
+    private static long queryBalance(String sql, int profileId, String day, String time, int transactionId) {
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, profileId);
+            pstmt.setString(2, day);
+            pstmt.setString(3, time);
+            if (transactionId != 0) {
+                pstmt.setInt(4, transactionId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long balance = rs.next() ? rs.getLong(1) : 0;
+                BALANCE_STATS.record(start, conn, 1);
+                return balance;
+            }
+        } catch (SQLException e) {
+            BALANCE_STATS.recordError(start);
+            LoggerControl.logMessage("Error computing balance: " + e.getMessage(), Level.WARNING);
+            return 0;
+        }
+    }
+
+    /**
+     * The `getPeriodTotals` function returns the income, expense and closing
+     * balance of a profile for every period of a date range. The periods are
+     * summed from the DailyTotals rollup, grouped by the matching column of the
+     * Dates table, and the running balance is a window over them, so ten years
+     * of history read at most one row per day and return one row per period.
+     *
+     * @param accountId  the target account id
+     * @param profileId  the target profile id
+     * @param from       the first day, inclusive, or `null` for no lower bound
+     * @param to         the last day, inclusive, or `null` for no upper bound
+     * @param resolution the length of the periods
+     * @return the periods with transactions, oldest first
+     */
+    public static List<PeriodTotal> getPeriodTotals(int accountId, int profileId, LocalDate from, LocalDate to,
+            ChartResolution resolution) {
+        String period = switch (resolution) {
+            case DAY -> "t.day";
+            case WEEK -> "d.week_start";
+            case MONTH -> "d.month_start";
+            case QUARTER -> "d.quarter_start";
+            case YEAR -> "d.year_start";
+            case FISCAL_YEAR -> "d.fiscal_year_start";
+        };
+        String sql = """
+                WITH periods AS (
+                    SELECT %s AS period, SUM(t.income) AS income, SUM(t.expense) AS expense
+                    FROM DailyTotals t
+                    JOIN Dates d ON d.day = t.day
+                    WHERE t.profile_id = ?1 AND t.day >= ?2 AND t.day <= ?3
+                    GROUP BY period
+                )
+                SELECT period, income, expense,
+                       (SELECT COALESCE(SUM(income - expense), 0) FROM DailyTotals
+                        WHERE profile_id = ?1 AND day < ?2)
+                       + SUM(income - expense) OVER (ORDER BY period) AS balance
+                FROM periods
+                ORDER BY period
+                """.formatted(period);
+        List<PeriodTotal> totals = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, profileId);
+            // Days are yyyy-MM-dd text, any day sorts after "" and before "A"
+            pstmt.setString(2, from == null ? "" : from.toString());
+            pstmt.setString(3, to == null ? "A" : to.toString());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.add(new PeriodTotal(LocalDate.parse(rs.getString(1)), rs.getLong(2), rs.getLong(3),
+                            rs.getLong(4)));
+                }
+            }
+            PERIOD_TOTALS_STATS.record(start, conn, totals.size());
+        } catch (SQLException e) {
+            PERIOD_TOTALS_STATS.recordError(start);
+            LoggerControl.logMessage("Error computing period totals: " + e.getMessage(), Level.WARNING);
+        }
+        return totals;
+    }
+
+    /**
+     * The `getOrCreateCategory` function returns the id of a category name,
+     * adding it to the Categories table the first time it is used. Names are
+     * compared without case.
+     *
+     * @param name the category name
+     * @return the category id, or -1 on error
+     */
+    public static int getOrCreateCategory(String name) {
+        String insertSql = "INSERT INTO Categories (name) VALUES (?) ON CONFLICT (name) DO NOTHING";
+        String selectSql = "SELECT category_id FROM Categories WHERE name = ?";
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter();
+                PreparedStatement insertStmt = conn.prepareStatement(insertSql);
+                PreparedStatement selectStmt = conn.prepareStatement(selectSql)) {
+            insertStmt.setString(1, name);
+            int affectedRows = insertStmt.executeUpdate();
+            selectStmt.setString(1, name);
+            try (ResultSet rs = selectStmt.executeQuery()) {
+                if (rs.next()) {
+                    CATEGORY_STATS.record(start, conn, affectedRows);
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            CATEGORY_STATS.recordError(start);
+            LoggerControl.logMessage("Error fetching category: " + e.getMessage(), Level.WARNING);
+        }
+        return -1;
+    }
+
+    /**
+     * The `getCategories` function returns every category, by id.
+     *
+     * @return the category names by id, ordered by name
+     */
+    public static Map<Integer, String> getCategories() {
+        Map<Integer, String> categories = new LinkedHashMap<>();
+        String sql = "SELECT category_id, name FROM Categories ORDER BY name";
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    categories.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+            CATEGORIES_STATS.record(start, conn, categories.size());
+        } catch (SQLException e) {
+            CATEGORIES_STATS.recordError(start);
+            LoggerControl.logMessage("Error fetching categories: " + e.getMessage(), Level.WARNING);
+        }
+        return categories;
+    }
+
+    /**
+     * The `setTransactionCategory` function changes the category of a
+     * transaction.
+     *
+     * @param accountId     the account owning the profile
+     * @param profileId     the profile of the transaction
+     * @param transactionId the transaction to change
+     * @param categoryId    the new category id, or `null` for none
+     * @return true if the transaction was changed, false otherwise.
+     */
+    public static boolean setTransactionCategory(int accountId, int profileId, int transactionId,
+            Integer categoryId) {
+        String sql = """
+                UPDATE Transactions SET category_id = ?
+                WHERE transaction_id = ?
+                AND profile_id IN (SELECT profile_id FROM Profiles WHERE account_id = ?)
+                AND profile_id = ?
+                """;
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getWriter();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setObject(1, categoryId);
+            pstmt.setInt(2, transactionId);
+            pstmt.setInt(3, accountId);
+            pstmt.setInt(4, profileId);
+            int affectedRows = pstmt.executeUpdate();
+            SET_CATEGORY_STATS.record(start, conn, affectedRows);
+            if (affectedRows > 0) {
+                cacheStoredTransaction(conn, profileId, transactionId);
+            }
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            SET_CATEGORY_STATS.recordError(start);
+            LoggerControl.logMessage("Error updating transaction category: " + e.getMessage(), Level.WARNING);
+            return false;
+        }
+    }
+
+    /**
+     * The `getCategoryTotals` function computes the income and expense totals
+     * of every category of a profile over a period in one grouped query. Each
+     * category is one date range of the `(profile_id, category_id,
+     * transaction_date, ...)` index, read in category order so the grouping
+     * needs no sort, and the type and amount come from the index too. The
+     * transactions without a category are the `category_id IS NULL` range.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param from      the first day, inclusive, or `null` for no lower bound
+     * @param to        the last day, inclusive, or `null` for no upper bound
+     * @return the totals of the categories used in the period, largest expense
+     *         first, the transactions without a category last
+     */
+    public static List<CategoryTotal> getCategoryTotals(int accountId, int profileId, LocalDate from,
+            LocalDate to) {
+        // CROSS JOIN keeps Categories as the outer loop
+        String sql = """
+                SELECT * FROM (
+                    SELECT c.category_id, c.name,
+                           SUM(CASE WHEN t.transaction_type = 'income' THEN t.amount ELSE 0 END) AS income,
+                           SUM(CASE WHEN t.transaction_type = 'expense' THEN t.amount ELSE 0 END) AS expense,
+                           COUNT(*) AS count
+                    FROM Categories c
+                    CROSS JOIN Transactions t
+                        ON t.profile_id = ?1 AND t.category_id = c.category_id
+                        AND t.transaction_date >= ?2 AND t.transaction_date < ?3
+                    GROUP BY c.category_id
+                    UNION ALL
+                    SELECT NULL, NULL,
+                           SUM(CASE WHEN t.transaction_type = 'income' THEN t.amount ELSE 0 END),
+                           SUM(CASE WHEN t.transaction_type = 'expense' THEN t.amount ELSE 0 END),
+                           COUNT(*)
+                    FROM Transactions t
+                    WHERE t.profile_id = ?1 AND t.category_id IS NULL
+                    AND t.transaction_date >= ?2 AND t.transaction_date < ?3
+                    HAVING COUNT(*) > 0
+                )
+                ORDER BY category_id IS NULL, expense DESC, income DESC
+                """;
+        List<CategoryTotal> totals = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, profileId);
+            // Stored dates are text, any date sorts after "" and before "A"
+            pstmt.setString(2, from == null ? "" : from.toString());
+            pstmt.setString(3, to == null ? "A" : to.plusDays(1).toString());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int categoryId = rs.getInt(1);
+                    Integer category = rs.wasNull() ? null : categoryId;
+                    totals.add(new CategoryTotal(category, rs.getString(2), Money.ofCents(rs.getLong(3)),
+                            Money.ofCents(rs.getLong(4)), rs.getLong(5)));
+                }
+            }
+            CATEGORY_TOTALS_STATS.record(start, conn, totals.size());
+        } catch (SQLException e) {
+            CATEGORY_TOTALS_STATS.recordError(start);
+            LoggerControl.logMessage("Error computing category totals: " + e.getMessage(), Level.WARNING);
+        }
+        return totals;
+    }
+
     /**
      * The function `getProfilesByAccount` retrieves profiles associated with a
      * specific account from a database and returns them as a map of profile IDs to
@@ -357,7 +1779,8 @@ public class DBQueries {
         Map<Integer, String> profilesMap = new HashMap<>();
         String sql = "SELECT profile_id, profile_name FROM Profiles WHERE account_id = ?";
 
-        try (Connection conn = DBConnection.getInstance(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, accountId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -367,7 +1790,9 @@ public class DBQueries {
                     profilesMap.put(profileId, profileName);
                 }
             }
+            PROFILES_STATS.record(start, conn, profilesMap.size());
         } catch (SQLException e) {
+            PROFILES_STATS.recordError(start);
             LoggerControl.logMessage("Error fetching profiles: " + e.getMessage(), Level.WARNING);
         }
 
@@ -388,7 +1813,8 @@ public class DBQueries {
         List<Map<String, Object>> accountsList = new ArrayList<>();
         String sql = "SELECT account_id, username, created_at FROM Accounts";
 
-        try (Connection conn = DBConnection.getInstance(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     Map<String, Object> accountMap = new HashMap<>();
@@ -399,7 +1825,9 @@ public class DBQueries {
                     accountsList.add(accountMap);
                 }
             }
+            ACCOUNTS_STATS.record(start, conn, accountsList.size());
         } catch (SQLException e) {
+            ACCOUNTS_STATS.recordError(start);
             LoggerControl.logMessage("Error fetching accounts: " + e.getMessage(), Level.WARNING);
         }
 
@@ -0,0 +1,458 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import myexpense.models.Summary;
+import myexpense.models.Transaction;
+import myexpense.models.TransactionFilter;
+import myexpense.utils.LoggerControl;
+
+/**
+ * The `LedgerCache` class keeps the transactions of recently used profiles in
+ * memory. The application is the only writer of its database file, so a
+ * profile is read once and then kept up to date by the `DBQueries` write
+ * methods, and summaries and filters no longer go back to SQLite.
+ *
+ * Profiles are evicted least recently used first, so that the cached rows stay
+ * under `myexpense.cache.maxRows` (250 000 by default). A profile larger than
+ * the budget is never cached and is always read from the database. It is
+ * remembered as too large, so its rows are not counted again on every read,
+ * until enough of them are removed.
+ *
+ * Every write bumps a version counter. A ledger read while a write happened is
+ * dropped instead of cached, since it may have missed that write.
+ */
+public class LedgerCache {
+    private static final long MAX_CACHED_ROWS = Long.getLong("myexpense.cache.maxRows", 250_000L);
+
+    private static final Comparator<Transaction> LEDGER_ORDER = Comparator
+            .comparing(Transaction::date, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(Transaction::id);
+
+    // Loaded ledgers, in access order so the least recently used one is evicted
+    private static final Map<Integer, Ledger> ledgers = new LinkedHashMap<>(16, 0.75f, true);
+    // Row counts of the profiles too large to be cached, less the removals
+    // since. Inserts are not counted, so the count can only be too low.
+    private static final Map<Integer, Long> oversized = new HashMap<>();
+    private static long cachedRows = 0;
+    private static long version = 0;
+
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long evictions = 0;
+
+    private LedgerCache() {
+    }
+
+    /**
+     * The `CacheStats` record is a snapshot of the cache counters.
+     *
+     * @param hits       reads answered from memory
+     * @param misses     reads that had to load the profile from the database
+     * @param evictions  profiles dropped to stay under the row budget
+     * @param profiles   profiles currently cached
+     * @param cachedRows transactions currently cached
+     */
+    public record CacheStats(long hits, long misses, long evictions, int profiles, long cachedRows) {
+
+        public double hitRatio() {
+            return hits + misses == 0 ? 0 : hits / (double) (hits + misses);
+        }
+    }
+
+    public static synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, ledgers.size(), cachedRows);
+    }
+
+    /**
+     * The `getVersion` function returns a counter that changes whenever a
+     * transaction is written, so results derived from the transactions can be
+     * cached until it moves.
+     *
+     * @return the current version
+     */
+    public static synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * The `clear` method drops every cached profile, e.g. after the database
+     * file was changed by another program.
+     */
+    public static synchronized void clear() {
+        ledgers.clear();
+        oversized.clear();
+        cachedRows = 0;
+        version++;
+    }
+
+    /**
+     * The `getTransaction` method returns a cached transaction.
+     *
+     * @param accountId     the account id
+     * @param profileId     the profile id
+     * @param transactionId the transaction id
+     * @param found         set to true when the profile is in memory, in which
+     *                      case a `null` result means the transaction does not
+     *                      exist
+     * @return the transaction, or `null`
+     */
+    static Transaction getTransaction(int accountId, int profileId, int transactionId, boolean[] found) {
+        Ledger ledger = ledger(accountId, profileId);
+        found[0] = ledger != null;
+        if (ledger == null) {
+            return null;
+        }
+        synchronized (LedgerCache.class) {
+            return ledger.byId.get(transactionId);
+        }
+    }
+
+    /**
+     * The `filter` method returns the cached transactions of a profile matching
+     * a filter, ordered like the database query.
+     *
+     * @return the matching transactions, or `null` if the profile is too large
+     *         to be cached
+     */
+    static List<Transaction> filter(int accountId, int profileId, TransactionFilter filter) {
+        Ledger ledger = ledger(accountId, profileId);
+        if (ledger == null) {
+            return null;
+        }
+        synchronized (LedgerCache.class) {
+            return ledger.filter(filter);
+        }
+    }
+
+    /**
+     * The `summary` method computes the summary of a profile in memory.
+     *
+     * @return the summary, or `null` if the profile is too large to be cached
+     */
+    static Summary summary(int accountId, int profileId, LocalDate today) {
+        Ledger ledger = ledger(accountId, profileId);
+        if (ledger == null) {
+            return null;
+        }
+        synchronized (LedgerCache.class) {
+            return ledger.summary(today);
+        }
+    }
+
+    /**
+     * The `balanceThrough` method returns the balance of a profile up to a
+     * transaction included, in the order of the transactions table (date,
+     * then id).
+     *
+     * @param transaction a transaction of the profile
+     * @return the balance in cents, or `null` if the profile is too large to
+     *         be cached
+     */
+    static Long balanceThrough(int accountId, int profileId, Transaction transaction) {
+        Ledger ledger = ledger(accountId, profileId);
+        if (ledger == null) {
+            return null;
+        }
+        synchronized (LedgerCache.class) {
+            return ledger.balanceThrough(transaction);
+        }
+    }
+
+    /**
+     * The `balanceAt` method returns the balance of a profile counting every
+     * transaction dated at or before a time.
+     *
+     * @return the balance in cents, or `null` if the profile is too large to
+     *         be cached
+     */
+    static Long balanceAt(int accountId, int profileId, LocalDateTime asOf) {
+        Ledger ledger = ledger(accountId, profileId);
+        if (ledger == null) {
+            return null;
+        }
+        synchronized (LedgerCache.class) {
+            return ledger.balanceAt(asOf);
+        }
+    }
+
+    /**
+     * The `put` method records an inserted or updated transaction.
+     *
+     * @param transaction the transaction as stored in the database
+     */
+    static synchronized void put(Transaction transaction) {
+        version++;
+        Ledger ledger = ledgers.get(transaction.profileId());
+        if (ledger == null) {
+            return;
+        }
+        cachedRows += ledger.put(transaction);
+        evict();
+    }
+
+    /**
+     * The `remove` method records a deleted transaction.
+     */
+    static synchronized void remove(int profileId, int transactionId) {
+        version++;
+        Ledger ledger = ledgers.get(profileId);
+        if (ledger != null && ledger.remove(transactionId)) {
+            cachedRows--;
+        }
+        Long rows = oversized.get(profileId);
+        if (rows != null) {
+            if (rows - 1 > MAX_CACHED_ROWS) {
+                oversized.put(profileId, rows - 1);
+            } else {
+                oversized.remove(profileId); // May fit now, counted on next use
+            }
+        }
+    }
+
+    /**
+     * The `invalidate` method drops a profile, which is read again on next use.
+     * It is used when the stored rows are not known, e.g. after a batch insert.
+     */
+    static synchronized void invalidate(int profileId) {
+        version++;
+        oversized.remove(profileId);
+        Ledger ledger = ledgers.remove(profileId);
+        if (ledger != null) {
+            cachedRows -= ledger.rows.size();
+        }
+    }
+
+    // Returns the ledger of a profile, reading it on a miss. The database is
+    // read without holding the monitor, so the writer lane is never blocked
+    private static Ledger ledger(int accountId, int profileId) {
+        long loadVersion;
+        synchronized (LedgerCache.class) {
+            Ledger ledger = ledgers.get(profileId);
+            if (ledger != null) {
+                hits++;
+                return ledger;
+            }
+            misses++;
+            if (oversized.containsKey(profileId)) {
+                return null;
+            }
+            loadVersion = version;
+        }
+
+        Ledger loaded = load(accountId, profileId, loadVersion);
+        if (loaded == null) {
+            return null;
+        }
+
+        synchronized (LedgerCache.class) {
+            Ledger current = ledgers.get(profileId);
+            if (current != null) {
+                return current; // Read by another thread meanwhile
+            }
+            if (version != loadVersion) {
+                // A write happened during the read, answer from it once only
+                return loaded;
+            }
+            ledgers.put(profileId, loaded);
+            cachedRows += loaded.rows.size();
+            evict();
+            return loaded;
+        }
+    }
+
+    private static Ledger load(int accountId, int profileId, long loadVersion) {
+        int count = DBQueries.countTransactions(accountId, profileId);
+        if (count > MAX_CACHED_ROWS) {
+            synchronized (LedgerCache.class) {
+                // A removal during the count is not reflected in it
+                if (version == loadVersion) {
+                    oversized.put(profileId, (long) count);
+                }
+            }
+            LoggerControl.logMessage(() -> "Profile " + profileId + " has " + count
+                    + " transactions, too many to be cached.", Level.FINE);
+            return null;
+        }
+
+        long start = System.nanoTime();
+        List<Transaction> rows = new ArrayList<>(count + 16);
+        try {
+            DBQueries.streamTransactions(accountId, profileId, TransactionFilter.ALL, rows::add);
+        } catch (SQLException e) {
+            LoggerControl.logMessage("Error loading ledger: " + e.getMessage(), Level.WARNING);
+            return null;
+        }
+        LoggerControl.logMessage(() -> "Ledger of profile " + profileId + " loaded: " + rows.size() + " rows in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms", Level.FINE);
+        return new Ledger(rows);
+    }
+
+    // Drops the least recently used ledgers until the row budget is met
+    private static void evict() {
+        Iterator<Map.Entry<Integer, Ledger>> iterator = ledgers.entrySet().iterator();
+        while (cachedRows > MAX_CACHED_ROWS && iterator.hasNext()) {
+            cachedRows -= iterator.next().getValue().rows.size();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * The `Ledger` class holds the transactions of one profile, ordered by date
+     * then id like the database queries, with an index by id, the all-time
+     * totals and the per-day totals in a `BalanceIndex`.
+     *
+     * The rows are an array list found by binary search, so `put` and `remove`
+     * shift the later rows and cost O(n), a copy of a few hundred kilobytes at
+     * most under the row budget. Only the day index is updated in O(log d).
+     */
+    private static class Ledger {
+        private final List<Transaction> rows;
+        private final Map<Integer, Transaction> byId;
+        private final BalanceIndex days = new BalanceIndex();
+        private long totalIncome = 0;
+        private long totalExpense = 0;
+
+        Ledger(List<Transaction> rows) {
+            this.rows = rows;
+            this.byId = new HashMap<>(rows.size() * 4 / 3 + 1);
+            for (Transaction transaction : rows) {
+                byId.put(transaction.id(), transaction);
+                addTotals(transaction, 1);
+            }
+        }
+
+        // Inserts or replaces a transaction, returns the change in row count
+        int put(Transaction transaction) {
+            Transaction previous = byId.put(transaction.id(), transaction);
+            if (previous != null) {
+                rows.remove(position(previous));
+                addTotals(previous, -1);
+            }
+            int position = position(transaction);
+            rows.add(position < 0 ? -position - 1 : position, transaction);
+            addTotals(transaction, 1);
+            return previous == null ? 1 : 0;
+        }
+
+        boolean remove(int transactionId) {
+            Transaction previous = byId.remove(transactionId);
+            if (previous == null) {
+                return false;
+            }
+            rows.remove(position(previous));
+            addTotals(previous, -1);
+            return true;
+        }
+
+        List<Transaction> filter(TransactionFilter filter) {
+            int from = filter.startDate() == null ? 0 : lowerBound(filter.startDate().atStartOfDay());
+            int to = filter.endDate() == null ? rows.size()
+                    : lowerBound(filter.endDate().plusDays(1).atStartOfDay());
+
+            List<Transaction> result = new ArrayList<>(Math.max(to - from, 0));
+            for (int i = from; i < to; i++) {
+                Transaction transaction = rows.get(i);
+                if (filter.type() != null
+                        && (transaction.type() == null || !transaction.type().getDbValue().equals(filter.type()))) {
+                    continue;
+                }
+                if (filter.minAmount() != null && transaction.amountCents() < filter.minAmount().cents()) {
+                    continue;
+                }
+                if (filter.maxAmount() != null && transaction.amountCents() > filter.maxAmount().cents()) {
+                    continue;
+                }
+                result.add(transaction);
+            }
+            return result;
+        }
+
+        // Every total is a range of the day index, nothing is scanned
+        Summary summary(LocalDate today) {
+            LocalDate tomorrow = today.plusDays(1);
+            LocalDate monthStart = today.withDayOfMonth(1);
+            LocalDate monthEnd = monthStart.plusMonths(1);
+            LocalDate yearStart = today.withDayOfYear(1);
+            LocalDate yearEnd = yearStart.plusYears(1);
+
+            return Summary.ofCents(new long[] {
+                    days.income(today, tomorrow), days.expense(today, tomorrow),
+                    days.income(monthStart, monthEnd), days.expense(monthStart, monthEnd),
+                    days.income(yearStart, yearEnd), days.expense(yearStart, yearEnd),
+                    totalIncome, totalExpense });
+        }
+
+        // The days before the transaction come from the day index, only the
+        // earlier rows of its own day are added up
+        long balanceThrough(Transaction transaction) {
+            int position = position(transaction);
+            int last = position < 0 ? -position - 2 : position;
+            if (transaction.date() == null) {
+                return sumRows(0, last + 1);
+            }
+            LocalDate day = transaction.date().toLocalDate();
+            return days.balanceBefore(day) + sumRows(lowerBound(day.atStartOfDay()), last + 1);
+        }
+
+        long balanceAt(LocalDateTime asOf) {
+            LocalDate day = asOf.toLocalDate();
+            int from = lowerBound(day.atStartOfDay());
+            return days.balanceBefore(day) + sumRows(from, lowerBound(asOf.plusNanos(1)));
+        }
+
+        private long sumRows(int from, int to) {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += rows.get(i).signedCents();
+            }
+            return sum;
+        }
+
+        // Index of the first row dated at or after `date`
+        private int lowerBound(LocalDateTime date) {
+            int low = 0;
+            int high = rows.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                LocalDateTime rowDate = rows.get(middle).date();
+                if (rowDate == null || rowDate.isBefore(date)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int position(Transaction transaction) {
+            return Collections.binarySearch(rows, transaction, LEDGER_ORDER);
+        }
+
+        private void addTotals(Transaction transaction, int sign) {
+            LocalDate day = transaction.date() == null ? null : transaction.date().toLocalDate();
+            if (transaction.type() == Transaction.Type.INCOME) {
+                totalIncome += sign * transaction.amountCents();
+                days.add(day, sign * transaction.amountCents(), 0);
+            } else if (transaction.type() == Transaction.Type.EXPENSE) {
+                totalExpense += sign * transaction.amountCents();
+                days.add(day, 0, sign * transaction.amountCents());
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import myexpense.utils.LoggerControl;
+
+/**
+ * The `PooledConnection` class wraps one physical SQLite connection owned by
+ * `DBConnection`. It hands out short-lived handles whose `close()` gives the
+ * connection back, and keeps the prepared statements of the connection alive
+ * between borrows.
+ */
+class PooledConnection {
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final Connection physical;
+    private final Map<String, PreparedStatement> statements;
+    private long statementHits = 0;
+    private long statementMisses = 0;
+
+    PooledConnection(Connection physical) {
+        this.physical = physical;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > STATEMENT_CACHE_SIZE) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * The `borrow` method creates a new handle on this connection.
+     *
+     * @param onClose      the action giving the connection back to its owner
+     * @param acquireNanos the time the borrower waited for the connection
+     * @return a `Connection` handle
+     */
+    Connection borrow(Runnable onClose, long acquireNanos) {
+        return (Connection) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new Handle(onClose, acquireNanos));
+    }
+
+    // The time the borrower of a handle waited for it, 0 for other connections
+    static long acquireNanos(Connection conn) {
+        if (Proxy.isProxyClass(conn.getClass()) && Proxy.getInvocationHandler(conn) instanceof Handle handle) {
+            return handle.acquireNanos;
+        }
+        return 0;
+    }
+
+    boolean isBroken() {
+        try {
+            return physical.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    // Rolls back any transaction left open by the previous borrower
+    void reset() {
+        try {
+            if (!physical.isClosed() && !physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+                LoggerControl.logMessage("Rolled back a transaction left open on the writer", Level.WARNING);
+            }
+        } catch (SQLException e) {
+            LoggerControl.logMessage("Error resetting connection: " + e.getMessage(), Level.WARNING);
+        }
+    }
+
+    synchronized long getStatementHits() {
+        return statementHits;
+    }
+
+    synchronized long getStatementMisses() {
+        return statementMisses;
+    }
+
+    synchronized void closePhysical() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            LoggerControl.logMessage("Error closing connection: " + e.getMessage(), Level.WARNING);
+        }
+    }
+
+    // Returns a cached statement, preparing it on first use
+    private synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys + ":" + sql;
+        PreparedStatement cached = statements.get(key);
+        if (cached != null && !cached.isClosed()) {
+            statementHits++;
+            return cached;
+        }
+
+        statementMisses++;
+        PreparedStatement prepared = physical.prepareStatement(sql, autoGeneratedKeys);
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+                PooledConnection.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CachedStatement(prepared));
+        statements.put(key, statement);
+        return statement;
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.unwrap(PreparedStatement.class).close();
+        } catch (SQLException e) {
+            LoggerControl.logMessage(() -> "Error closing statement: " + e.getMessage(), Level.FINEST);
+        }
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The `Handle` class is the invocation handler behind a borrowed connection.
+     * Closing it gives the connection back instead of closing the file.
+     */
+    private class Handle implements InvocationHandler {
+        private final Runnable onClose;
+        private final long acquireNanos;
+        private boolean closed = false;
+
+        Handle(Runnable onClose, long acquireNanos) {
+            this.onClose = onClose;
+            this.acquireNanos = acquireNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        onClose.run();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "prepareStatement":
+                    if (closed) {
+                        throw new SQLException("Connection handle already closed");
+                    }
+                    if (args.length == 1) {
+                        return prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                    }
+                    if (args.length == 2 && args[1] instanceof Integer) {
+                        return prepare((String) args[0], (Integer) args[1]);
+                    }
+                    return forward(physical, method, args);
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection handle already closed");
+                    }
+                    return forward(physical, method, args);
+            }
+        }
+    }
+
+    /**
+     * The `CachedStatement` class is the invocation handler behind a cached
+     * prepared statement. Closing it only clears its parameters.
+     */
+    private static class CachedStatement implements InvocationHandler {
+        private final PreparedStatement target;
+
+        CachedStatement(PreparedStatement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!target.isClosed()) {
+                        target.clearParameters();
+                        target.clearBatch();
+                    }
+                    return null;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(target)) {
+                        return target;
+                    }
+                    return forward(target, method, args);
+                default:
+                    return forward(target, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The `QueryStats` class records, for one named database statement, how long
+ * it takes, how many rows it returns or changes, how long it waited for its
+ * connection and how often it fails.
+ *
+ * Each `DBQueries` method owns a `QueryStats` obtained once with `of(name)`
+ * and calls `record` or `recordError` when it is done. Recording only
+ * increments counters, so it allocates nothing and can stay on in
+ * production. `snapshots()` reads the numbers in-process and `dump` writes
+ * them to a file.
+ */
+public class QueryStats {
+    private static final Map<String, QueryStats> registry = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private QueryStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The `of` function returns the statistics of a statement, creating them on
+     * first use. It is meant to be called once, into a constant.
+     *
+     * @param name the statement name, usually the `DBQueries` method name
+     * @return the statistics of the statement
+     */
+    public static QueryStats of(String name) {
+        return registry.computeIfAbsent(name, QueryStats::new);
+    }
+
+    /**
+     * The `record` method records a successful execution.
+     *
+     * @param startNanos the `System.nanoTime()` taken before borrowing the
+     *                   connection
+     * @param conn       the borrowed connection, for its acquire time
+     * @param rowCount   the rows returned or affected
+     */
+    public void record(long startNanos, Connection conn, long rowCount) {
+        latency.record(System.nanoTime() - startNanos);
+        acquire.record(DBConnection.getAcquireNanos(conn));
+        rows.add(rowCount);
+    }
+
+    /**
+     * The `recordError` method records a failed execution. Its duration is
+     * counted in the latency as well.
+     *
+     * @param startNanos the `System.nanoTime()` taken before borrowing the
+     *                   connection
+     */
+    public void recordError(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+        errors.increment();
+    }
+
+    /**
+     * The `Snapshot` record holds the statistics of a statement at one point in
+     * time. Percentiles are the upper bound of their histogram bucket, within
+     * 12.5% of the exact value.
+     */
+    public record Snapshot(String name, long calls, long errors, long rows, long totalNanos, long p50Nanos,
+            long p90Nanos, long p99Nanos, long maxNanos, long acquireP50Nanos, long acquireP99Nanos,
+            long acquireMaxNanos) {
+
+        public double meanNanos() {
+            return calls == 0 ? 0 : totalNanos / (double) calls;
+        }
+
+        public double rowsPerCall() {
+            return calls == 0 ? 0 : rows / (double) calls;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(name, latency.count(), errors.sum(), rows.sum(), latency.total(),
+                latency.percentile(0.50), latency.percentile(0.90), latency.percentile(0.99), latency.max(),
+                acquire.percentile(0.50), acquire.percentile(0.99), acquire.max());
+    }
+
+    /**
+     * The `snapshots` function returns the statistics of every statement run
+     * so far, the most expensive in total first.
+     *
+     * @return the snapshots
+     */
+    public static List<Snapshot> snapshots() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (QueryStats stats : registry.values()) {
+            Snapshot snapshot = stats.snapshot();
+            if (snapshot.calls() > 0) {
+                snapshots.add(snapshot);
+            }
+        }
+        snapshots.sort(Comparator.comparingLong(Snapshot::totalNanos).reversed());
+        return snapshots;
+    }
+
+    /**
+     * The `reset` method clears the statistics of every statement.
+     */
+    public static void reset() {
+        for (QueryStats stats : registry.values()) {
+            stats.latency.reset();
+            stats.acquire.reset();
+            stats.rows.reset();
+            stats.errors.reset();
+        }
+    }
+
+    /**
+     * The `dump` method writes the statistics as a table to a file, replacing
+     * it.
+     *
+     * @param file the output file
+     * @throws IOException if the file cannot be written
+     */
+    public static void dump(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# MyExpense query statistics, " + LocalDateTime.now() + ", times in ms\n");
+            writer.write(String.format(Locale.ROOT, "%-28s %9s %7s %11s %10s %9s %9s %9s %9s %9s %11s %11s%n",
+                    "query", "calls", "errors", "rows", "total", "mean", "p50", "p90", "p99", "max",
+                    "acquire p99", "acquire max"));
+            for (Snapshot s : snapshots()) {
+                writer.write(String.format(Locale.ROOT,
+                        "%-28s %9d %7d %11d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f %11.3f %11.3f%n",
+                        s.name(), s.calls(), s.errors(), s.rows(), s.totalNanos() / 1e6, s.meanNanos() / 1e6,
+                        s.p50Nanos() / 1e6, s.p90Nanos() / 1e6, s.p99Nanos() / 1e6, s.maxNanos() / 1e6,
+                        s.acquireP99Nanos() / 1e6, s.acquireMaxNanos() / 1e6));
+            }
+        }
+    }
+
+    /**
+     * The `LatencyHistogram` class counts durations in log-linear buckets, like
+     * an HDR histogram with 3 bits of precision: 8 buckets per power of two, so
+     * a bucket is at most 12.5% wide. The buckets cover every positive `long`
+     * in a fixed array, so recording never allocates.
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            counts.incrementAndGet(bucket(value));
+            count.increment();
+            total.add(value);
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        // Upper bound of the bucket holding the q-th quantile
+        long percentile(double q) {
+            long recorded = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                recorded += counts.get(i);
+            }
+            if (recorded == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * recorded));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = bucket % SUB_BUCKETS;
+            long lower = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+            long width = 1L << (exponent - SUB_BUCKET_BITS);
+            long upper = lower + width - 1;
+            return upper < lower ? Long.MAX_VALUE : upper;
+        }
+    }
+}
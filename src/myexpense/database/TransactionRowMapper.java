@@ -0,0 +1,128 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import myexpense.models.Transaction;
+import myexpense.utils.AppTime;
+
+/**
+ * The `TransactionRowMapper` class maps rows of a result set straight into
+ * `Transaction` records. The column positions are resolved once per result
+ * set, and the stored timestamps are parsed without going through
+ * `java.sql.Timestamp`.
+ */
+public class TransactionRowMapper {
+    private final int idColumn;
+    private final int profileIdColumn;
+    private final int typeColumn;
+    private final int amountColumn;
+    private final int commentColumn;
+    private final int dateColumn;
+    private final int categoryColumn;
+
+    /**
+     * Resolves the column positions of a result set selecting the
+     * `transaction_id`, `profile_id`, `transaction_type`, `amount`, `comment`,
+     * `transaction_date` and `category_id` columns.
+     *
+     * @param rs the result set to map
+     * @throws SQLException if one of the columns is missing
+     */
+    public TransactionRowMapper(ResultSet rs) throws SQLException {
+        this.idColumn = rs.findColumn("transaction_id");
+        this.profileIdColumn = rs.findColumn("profile_id");
+        this.typeColumn = rs.findColumn("transaction_type");
+        this.amountColumn = rs.findColumn("amount");
+        this.commentColumn = rs.findColumn("comment");
+        this.dateColumn = rs.findColumn("transaction_date");
+        this.categoryColumn = rs.findColumn("category_id");
+    }
+
+    /**
+     * Maps the current row of the result set.
+     *
+     * @param rs the result set positioned on a row
+     * @return the mapped `Transaction`
+     * @throws SQLException if a column cannot be read
+     */
+    public Transaction map(ResultSet rs) throws SQLException {
+        // wasNull() reports the last column read, so it is checked right away
+        int categoryId = rs.getInt(categoryColumn);
+        Integer category = rs.wasNull() ? null : categoryId;
+        return new Transaction(
+                rs.getInt(idColumn),
+                rs.getInt(profileIdColumn),
+                Transaction.Type.fromDbValue(rs.getString(typeColumn)),
+                rs.getLong(amountColumn),
+                rs.getString(commentColumn),
+                parseDate(rs.getString(dateColumn)),
+                category);
+    }
+
+    /**
+     * The `parseDate` function parses a stored timestamp. SQLite stores
+     * `CURRENT_TIMESTAMP` as `yyyy-MM-dd HH:mm:ss` text, which is read by
+     * position; epoch milliseconds written by the JDBC driver are also
+     * accepted, as times of the application zone.
+     *
+     * @param value the stored value
+     * @return the parsed date, or `null` if the value is `null`
+     */
+    public static LocalDateTime parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() >= 19 && value.charAt(4) == '-' && value.charAt(13) == ':') {
+            return LocalDateTime.of(
+                    digits(value, 0, 4), digits(value, 5, 7), digits(value, 8, 10),
+                    digits(value, 11, 13), digits(value, 14, 16), digits(value, 17, 19));
+        }
+        if (value.length() == 10 && value.charAt(4) == '-') {
+            return LocalDateTime.of(digits(value, 0, 4), digits(value, 5, 7), digits(value, 8, 10), 0, 0);
+        }
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(value)), AppTime.ZONE);
+        }
+        return LocalDateTime.parse(value.replace(' ', 'T'));
+    }
+
+    /**
+     * The `formatDate` function formats a date the way SQLite stores
+     * `CURRENT_TIMESTAMP`, so it can be compared with the stored values.
+     *
+     * @param date the date to format
+     * @return the `yyyy-MM-dd HH:mm:ss` text
+     */
+    public static String formatDate(LocalDateTime date) {
+        StringBuilder sb = new StringBuilder(19);
+        pad(sb, date.getYear(), 4).append('-');
+        pad(sb, date.getMonthValue(), 2).append('-');
+        pad(sb, date.getDayOfMonth(), 2).append(' ');
+        pad(sb, date.getHour(), 2).append(':');
+        pad(sb, date.getMinute(), 2).append(':');
+        pad(sb, date.getSecond(), 2);
+        return sb.toString();
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int value, int width) {
+        String text = Integer.toString(value);
+        for (int i = text.length(); i < width; i++) {
+            sb.append('0');
+        }
+        return sb.append(text);
+    }
+
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.logging.Level;
+
+import myexpense.utils.LoggerControl;
+
+/**
+ * The `UsernameFilter` class is a Bloom filter of the usernames of the
+ * database, compared without case like the `idx_accounts_username_nocase`
+ * index. A username it does not contain certainly has no account, so the
+ * lookup is answered without reading the database. A username it contains
+ * may still be absent, about 1% of the time.
+ *
+ * The filter is built on first use from the Accounts table and kept up to
+ * date by `insertAccount`. It only sees the accounts created by this
+ * process after it was built.
+ */
+class UsernameFilter {
+    // Bits per username and hash functions for a 1% false positive rate
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+    private static final int MIN_CAPACITY = 1_024;
+
+    private static long[] bits;
+    private static int capacity;
+    private static int size;
+
+    private UsernameFilter() {
+    }
+
+    /**
+     * The `mightContain` function tells if a username may have an account.
+     *
+     * @param username the username, in any case
+     * @return false if the username certainly has no account, true otherwise
+     *         (also when the filter cannot be built)
+     */
+    static synchronized boolean mightContain(String username) {
+        if (bits == null && !build(MIN_CAPACITY)) {
+            return true;
+        }
+        long hash = hash(username);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long length = (long) bits.length * Long.SIZE;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % length;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The `add` method records a new account. The filter is rebuilt, twice as
+     * large, when it holds more usernames than it was sized for. When the
+     * rebuild fails the filter is left empty and built again on next use.
+     *
+     * @param username the username of the account
+     */
+    static synchronized void add(String username) {
+        if (bits == null) {
+            // Built from the table on first use, the account included
+            return;
+        }
+        if (size >= capacity) {
+            // The rebuild reads the account from the table, a failed one
+            // drops the filter until the next `mightContain`
+            build(capacity * 2);
+            return;
+        }
+        set(username);
+    }
+
+    private static void set(String username) {
+        long hash = hash(username);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long length = (long) bits.length * Long.SIZE;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % length;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        size++;
+    }
+
+    // Method to fill the filter with every username of the Accounts table
+    private static boolean build(int minCapacity) {
+        try (Connection conn = DBConnection.getReader();
+                PreparedStatement countStmt = conn.prepareStatement("SELECT COUNT(*) FROM Accounts");
+                PreparedStatement namesStmt = conn.prepareStatement("SELECT username FROM Accounts")) {
+            int count;
+            try (ResultSet rs = countStmt.executeQuery()) {
+                count = rs.next() ? rs.getInt(1) : 0;
+            }
+
+            capacity = Math.max(minCapacity, count * 2);
+            bits = new long[(int) (((long) capacity * BITS_PER_KEY + Long.SIZE - 1) / Long.SIZE)];
+            size = 0;
+            try (ResultSet rs = namesStmt.executeQuery()) {
+                while (rs.next()) {
+                    set(rs.getString(1));
+                }
+            }
+            LoggerControl.logMessage(() -> "Username filter built: " + size + " accounts.", Level.FINE);
+            return true;
+        } catch (SQLException e) {
+            bits = null;
+            LoggerControl.logMessage("Error building username filter: " + e.getMessage(), Level.WARNING);
+            return false;
+        }
+    }
+
+    // 64-bit hash of the lower-case username, the two halves seed the double
+    // hashing. Lower-casing never separates names that NOCASE finds equal.
+    private static long hash(String username) {
+        String key = username.toLowerCase(Locale.ROOT);
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 29;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,12 +1,16 @@
 package myexpense.logic;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import myexpense.database.DBExecutor;
 import myexpense.database.DBQueries;
+import myexpense.models.Credentials;
 import myexpense.utils.ExceptionControl.NotFoundException;
 import myexpense.utils.LoggerControl;
 import myexpense.utils.PasswordHasher;
@@ -53,14 +57,18 @@ public class AuthControl {
             return -1; // Invalid format
         }
 
-        // Check if username exists
-        Integer accountId = DBQueries.checkAccount(username);
+        // Fetch the account and its password hash in one lookup
+        Credentials credentials = DBQueries.getCredentials(username);
 
-        if (accountId != null) {
+        if (credentials != null) {
             // Username exists, verify the password
-            String storedHash = DBQueries.getPasswordHash(accountId);
+            int accountId = credentials.accountId();
+            String storedHash = credentials.passwordHash();
             if (storedHash != null && PasswordHasher.verifyPassword(password, storedHash)) {
-                LoggerControl.logMessage("Authentication successful for user " + username, Level.FINE);
+                LoggerControl.logMessage(() -> "Authentication successful for user " + username, Level.FINE);
+                if (PasswordHasher.needsRehash(storedHash)) {
+                    upgradePasswordHash(accountId, password, storedHash);
+                }
                 return accountId; // Successful login
             } else {
                 LoggerControl.logMessage("Authentication failed: Incorrect password for user " + username,
@@ -76,6 +84,42 @@ public class AuthControl {
 
     }
 
+    // Method to replace an outdated hash after a successful login, in the
+    // background so the login does not wait for the new hash. The hash is
+    // computed on a reader thread and only the update takes the writer lane,
+    // like registerAsync, so later writes do not queue behind the hashing.
+    private static void upgradePasswordHash(int accountId, String password, String storedHash) {
+        DBExecutor.read(() -> PasswordHasher.hashPassword(password))
+                .thenCompose(newHash -> DBExecutor.write(() -> DBQueries.updatePasswordHash(accountId, storedHash,
+                        newHash)))
+                .thenAccept(upgraded -> {
+                    if (upgraded) {
+                        LoggerControl.logMessage("Password hash upgraded for account " + accountId, Level.INFO);
+                    }
+                });
+    }
+
+    /**
+     * Authenticates a user on a background thread, so the password hashing and
+     * the account lookup do not run on the JavaFX application thread.
+     *
+     * @param username The username of the user.
+     * @param password The password of the user.
+     * @return A future completed with the account ID, or -1 if the credentials
+     *         are invalid. It completes exceptionally with a
+     *         `CompletionException` wrapping a `NotFoundException` if the
+     *         username does not exist.
+     */
+    public static CompletableFuture<Integer> authenticateAsync(String username, String password) {
+        return DBExecutor.read(() -> {
+            try {
+                return authenticate(username, password);
+            } catch (NotFoundException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
     /**
      * Registers a new user by creating an account in the database.
      *
@@ -90,6 +134,11 @@ public class AuthControl {
      *                                  invalid.
      */
     public static int register(String username, String password) throws RuntimeException, IllegalArgumentException {
+        return createAccount(username, hashForRegistration(username, password));
+    }
+
+    // Method to validate the credentials of a new user and hash the password
+    private static String hashForRegistration(String username, String password) {
         try {
             if (!isValidUsername(username)) {
                 LoggerControl.logMessage("Registration failed: Invalid username format", Level.WARNING);
@@ -104,8 +153,16 @@ public class AuthControl {
             }
 
             // Hash the password
-            String hashedPassword = PasswordHasher.hashPassword(password);
+            return PasswordHasher.hashPassword(password);
+        } catch (Exception e) {
+            LoggerControl.logMessage("Unexpected error during account creation: " + e.getMessage(), Level.SEVERE);
+            throw new RuntimeException("An unexpected error occurred while creating the account.");
+        }
+    }
 
+    // Method to insert the account of a new user
+    private static int createAccount(String username, String hashedPassword) {
+        try {
             // Insert the account into the database
             int accountId = DBQueries.insertAccount(username, hashedPassword);
 
@@ -117,6 +174,20 @@ public class AuthControl {
         }
     }
 
+    /**
+     * Registers a new user away from the JavaFX application thread. The
+     * password is hashed on a background thread, then only the insertion runs
+     * on the writer lane, so other writes do not queue behind the hashing.
+     *
+     * @param username The username of the user.
+     * @param password The password of the user.
+     * @return A future completed with the account ID of the newly created user.
+     */
+    public static CompletableFuture<Integer> registerAsync(String username, String password) {
+        return DBExecutor.read(() -> hashForRegistration(username, password))
+                .thenCompose(hashedPassword -> DBExecutor.write(() -> createAccount(username, hashedPassword)));
+    }
+
     // show alert popup to confirm user, return the response
     public static Optional showConfirmPopup(String message) {
         // alert type popup, return the response
@@ -0,0 +1,169 @@
+/**
+ * @author rahim
+ */
+package myexpense.logic;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import myexpense.database.DBQueries;
+import myexpense.database.LedgerCache;
+import myexpense.models.ChartPoint;
+import myexpense.models.ChartResolution;
+import myexpense.models.ChartSeries;
+import myexpense.models.PeriodTotal;
+
+/**
+ * The `ChartControl` class builds the chart series of a profile. The periods
+ * are summed by the database from the DailyTotals rollup, then each series is
+ * reduced to at most `maxPoints` points with Largest-Triangle-Three-Buckets,
+ * which keeps the shape of the curve (peaks and drops) rather than every
+ * n-th point. The chart therefore gets a few hundred points whatever the
+ * length of the history.
+ *
+ * Series are cached by profile, range, resolution and size until a
+ * transaction is written, see `LedgerCache.getVersion`.
+ */
+public class ChartControl {
+    private static final int MAX_CACHED_SERIES = 64;
+
+    private record Key(int profileId, LocalDate from, LocalDate to, ChartResolution resolution, int maxPoints) {
+    }
+
+    private record Entry(long version, ChartSeries series) {
+    }
+
+    // Built series, in access order so the least recently used one is dropped
+    private static final Map<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_CACHED_SERIES;
+        }
+    };
+
+    private ChartControl() {
+    }
+
+    /**
+     * The `getSeries` function returns the balance, income and expense series
+     * of a profile over a date range.
+     *
+     * @param accountId  the target account id
+     * @param profileId  the target profile id
+     * @param from       the first day, or `null` for the start of the history
+     * @param to         the last day, or `null` for the end of the history
+     * @param resolution the period of each point before downsampling
+     * @param maxPoints  the largest number of points of each series, at least 3
+     * @return the series, oldest point first
+     */
+    public static ChartSeries getSeries(int accountId, int profileId, LocalDate from, LocalDate to,
+            ChartResolution resolution, int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("A chart needs at least 3 points: " + maxPoints);
+        }
+        Key key = new Key(profileId, from, to, resolution, maxPoints);
+        // Read before the query, a write during it leaves a stale version
+        long version = LedgerCache.getVersion();
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry != null && entry.version() == version) {
+                return entry.series();
+            }
+        }
+
+        List<PeriodTotal> periods = DBQueries.getPeriodTotals(accountId, profileId, from, to, resolution);
+        ChartSeries series = new ChartSeries(resolution,
+                downsample(periods, PeriodTotal::balanceCents, maxPoints),
+                downsample(periods, PeriodTotal::incomeCents, maxPoints),
+                downsample(periods, PeriodTotal::expenseCents, maxPoints));
+
+        synchronized (cache) {
+            cache.put(key, new Entry(version, series));
+        }
+        return series;
+    }
+
+    /**
+     * The `clearCache` method drops every cached series.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * The `downsample` function selects at most `maxPoints` points of a series
+     * with Largest-Triangle-Three-Buckets. The first and last points are kept,
+     * the others are split in equal buckets and each bucket keeps the point
+     * forming the largest triangle with the point kept before it and the mean
+     * of the next bucket. The x axis is the day.
+     *
+     * @param periods   the periods, oldest first
+     * @param value     the value of the series for a period
+     * @param maxPoints the largest number of points to return, at least 3
+     * @return the selected points, oldest first
+     */
+    static List<ChartPoint> downsample(List<PeriodTotal> periods, ToLongFunction<PeriodTotal> value,
+            int maxPoints) {
+        int size = periods.size();
+        List<ChartPoint> points = new ArrayList<>(Math.min(size, maxPoints));
+        if (size <= maxPoints) {
+            for (PeriodTotal period : periods) {
+                points.add(new ChartPoint(period.start(), value.applyAsLong(period)));
+            }
+            return points;
+        }
+
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = periods.get(i).start().toEpochDay();
+            y[i] = value.applyAsLong(periods.get(i));
+        }
+
+        double bucketSize = (double) (size - 2) / (maxPoints - 2);
+        int kept = 0;
+        points.add(point(periods, value, 0));
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            int bucketStart = (int) (bucket * bucketSize) + 1;
+            int bucketEnd = (int) ((bucket + 1) * bucketSize) + 1;
+
+            // Mean of the next bucket, the last point for the last bucket
+            int nextStart = bucketEnd;
+            int nextEnd = Math.max(Math.min((int) ((bucket + 2) * bucketSize) + 1, size), nextStart + 1);
+            double meanX = 0;
+            double meanY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                meanX += x[i];
+                meanY += y[i];
+            }
+            meanX /= nextEnd - nextStart;
+            meanY /= nextEnd - nextStart;
+
+            int selected = bucketStart;
+            double largestArea = -1;
+            for (int i = bucketStart; i < bucketEnd; i++) {
+                // Twice the triangle area, only the comparison matters
+                double area = Math.abs((x[kept] - meanX) * (y[i] - y[kept]) - (x[kept] - x[i]) * (meanY - y[kept]));
+                if (area > largestArea) {
+                    largestArea = area;
+                    selected = i;
+                }
+            }
+            points.add(point(periods, value, selected));
+            kept = selected;
+        }
+        points.add(point(periods, value, size - 1));
+        return points;
+    }
+
+    private static ChartPoint point(List<PeriodTotal> periods, ToLongFunction<PeriodTotal> value, int index) {
+        PeriodTotal period = periods.get(index);
+        return new ChartPoint(period.start(), value.applyAsLong(period));
+    }
+}
@@ -0,0 +1,417 @@
+/**
+ * @author rahim
+ */
+package myexpense.logic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+
+import myexpense.database.DBQueries;
+import myexpense.models.BatchResult;
+import myexpense.models.ImportReport;
+import myexpense.models.Money;
+import myexpense.models.Transaction;
+import myexpense.utils.LoggerControl;
+
+/**
+ * The `CsvImporter` class streams a CSV file (e.g. a bank statement) into the
+ * Transactions table. The file is read record by record and sent to the
+ * database in batches, so memory stays bounded whatever the size of the file.
+ *
+ * The first line is a header, columns are found by name through a `Mapping`.
+ * When the mapping has no type column, the sign of the amount gives the type:
+ * negative amounts are expenses. Every row goes to the profile given to
+ * `importFile`, a `profile_id` column of the file (e.g. in an export) is
+ * ignored.
+ */
+public class CsvImporter {
+    private static final int BATCH_SIZE = 5_000;
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_REPORTED_REJECTIONS = 1_000;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    // Longest record, in characters, a quote left open stops there instead
+    // of reading the rest of the file into one field
+    private static final int MAX_RECORD_LENGTH = 1 << 16;
+
+    /**
+     * The `Mapping` record tells which header names hold each transaction
+     * field. A `null` column is not read from the file.
+     *
+     * @param typeColumn     the `income`/`expense` column, the amount sign is
+     *                       used when absent
+     * @param amountColumn   the amount column, required
+     * @param commentColumn  the comment column
+     * @param categoryColumn the category name column, a new name is added to
+     *                       the categories
+     * @param dateColumn     the date column, the import time is used when
+     *                       absent
+     * @param dateFormat     the date format, `null` for `yyyy-MM-dd` or
+     *                       `yyyy-MM-dd HH:mm:ss`
+     * @param delimiter      the field delimiter
+     */
+    public record Mapping(String typeColumn, String amountColumn, String commentColumn, String categoryColumn,
+            String dateColumn, DateTimeFormatter dateFormat, char delimiter) {
+
+        /**
+         * The column names used by the database itself, and by
+         * `TransactionExporter`.
+         */
+        public static final Mapping DEFAULT = new Mapping("transaction_type", "amount", "comment", "category",
+                "transaction_date", null, ',');
+    }
+
+    /**
+     * The `importFile` method imports a CSV file into a profile using the
+     * default column names.
+     *
+     * @param file      the CSV file
+     * @param accountId the account owning the profile
+     * @param profileId the profile receiving the rows
+     * @return the import report
+     * @throws IOException if the file cannot be read
+     */
+    public static ImportReport importFile(Path file, int accountId, int profileId) throws IOException {
+        return importFile(file, accountId, profileId, Mapping.DEFAULT);
+    }
+
+    /**
+     * The `importFile` method imports a CSV file, validating every row and
+     * inserting the valid ones in batches.
+     *
+     * @param file      the CSV file
+     * @param accountId the account owning the profile
+     * @param profileId the profile receiving the rows
+     * @param mapping   the column mapping
+     * @return the import report
+     * @throws IOException              if the file cannot be read or has no
+     *                                  header
+     * @throws IllegalArgumentException if the profile does not belong to the
+     *                                  account
+     */
+    public static ImportReport importFile(Path file, int accountId, int profileId, Mapping mapping)
+            throws IOException {
+        // The batch insert takes the profile of each row as is
+        if (!DBQueries.getProfilesByAccount(accountId).containsKey(profileId)) {
+            throw new IllegalArgumentException("Profile " + profileId + " does not belong to account " + accountId);
+        }
+        long start = System.nanoTime();
+        long rowsRead = 0;
+        long rowsImported = 0;
+        long rowsRejected = 0;
+        List<ImportReport.Rejection> rejections = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            RecordReader records = new RecordReader(reader, mapping.delimiter(), MAX_RECORD_LENGTH);
+            List<String> header;
+            try {
+                header = records.next();
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid CSV header in " + file + ": " + e.getMessage());
+            }
+            if (header == null) {
+                throw new IOException("Empty CSV file: " + file);
+            }
+
+            Columns columns = new Columns(header, mapping);
+            List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+            long[] batchLines = new long[BATCH_SIZE];
+
+            while (true) {
+                List<String> fields;
+                try {
+                    fields = records.next();
+                } catch (IllegalArgumentException e) {
+                    // Unterminated quote, the reader goes on after its line
+                    rowsRead++;
+                    rowsRejected++;
+                    reject(rejections, records.getLineNumber(), e.getMessage());
+                    continue;
+                }
+                if (fields == null) {
+                    break;
+                }
+                rowsRead++;
+                try {
+                    batchLines[batch.size()] = records.getLineNumber();
+                    batch.add(columns.toTransaction(fields, profileId, mapping));
+                } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+                    // DateTimeException also covers valid text naming no real
+                    // day, e.g. 2025-02-30
+                    rowsRejected++;
+                    reject(rejections, records.getLineNumber(), e.getMessage());
+                }
+
+                if (batch.size() == BATCH_SIZE) {
+                    int inserted = flush(batch, batchLines, rejections);
+                    rowsImported += inserted;
+                    rowsRejected += batch.size() - inserted;
+                    batch.clear();
+                }
+            }
+
+            int inserted = flush(batch, batchLines, rejections);
+            rowsImported += inserted;
+            rowsRejected += batch.size() - inserted;
+        }
+
+        ImportReport report = new ImportReport(rowsRead, rowsImported, rowsRejected, System.nanoTime() - start,
+                rejections);
+        LoggerControl.logMessage(String.format(Locale.ROOT,
+                "Imported %s: %d rows read, %d imported, %d rejected, %.0f rows/s",
+                file.getFileName(), rowsRead, rowsImported, rowsRejected, report.rowsPerSecond()), Level.INFO);
+        return report;
+    }
+
+    // Inserts a batch and records the rows refused by the database
+    private static int flush(List<Transaction> batch, long[] batchLines, List<ImportReport.Rejection> rejections) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        BatchResult result = DBQueries.insertTransactions(batch, CHUNK_SIZE);
+        for (BatchResult.Failure failure : result.failures()) {
+            reject(rejections, batchLines[failure.index()], failure.reason());
+        }
+        return result.insertedCount();
+    }
+
+    private static void reject(List<ImportReport.Rejection> rejections, long lineNumber, String reason) {
+        if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+            rejections.add(new ImportReport.Rejection(lineNumber, reason));
+        }
+    }
+
+    /**
+     * The `parseDate` function reads a date of the file. Without a format it
+     * accepts `yyyy-MM-dd`, `yyyy-MM-dd HH:mm[:ss]` and the ISO `T` form, and
+     * checks every digit and day, unlike `TransactionRowMapper.parseDate`
+     * which is meant for the values the database wrote.
+     *
+     * @param value  the date text
+     * @param format the date format of the mapping, or `null`
+     * @return the date, at midnight when the text has no time
+     * @throws DateTimeException if the text is not a valid date
+     */
+    static LocalDateTime parseDate(String value, DateTimeFormatter format) {
+        if (format == null) {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay();
+            }
+            return LocalDateTime.parse(value.replace(' ', 'T'));
+        }
+        TemporalAccessor parsed = format.parse(value);
+        if (parsed.isSupported(ChronoField.HOUR_OF_DAY)) {
+            return LocalDateTime.from(parsed);
+        }
+        return LocalDate.from(parsed).atStartOfDay();
+    }
+
+    /**
+     * The `Columns` class holds the positions of the mapped columns in the
+     * header and turns a record into a `Transaction`.
+     */
+    private static class Columns {
+        private final int type;
+        private final int amount;
+        private final int comment;
+        private final int category;
+        private final int date;
+        // Category ids by lower-case name, each name is looked up once per file
+        private final Map<String, Integer> categoryIds = new HashMap<>();
+
+        Columns(List<String> header, Mapping mapping) throws IOException {
+            this.type = indexOf(header, mapping.typeColumn());
+            this.amount = indexOf(header, mapping.amountColumn());
+            this.comment = indexOf(header, mapping.commentColumn());
+            this.category = indexOf(header, mapping.categoryColumn());
+            this.date = indexOf(header, mapping.dateColumn());
+            if (amount < 0) {
+                throw new IOException("Missing amount column: " + mapping.amountColumn());
+            }
+        }
+
+        Transaction toTransaction(List<String> fields, int profileId, Mapping mapping) {
+            String amountValue = field(fields, amount);
+            if (amountValue.isEmpty()) {
+                throw new IllegalArgumentException("Missing amount");
+            }
+            long value = Money.parseCents(amountValue);
+            if (value == 0) {
+                throw new IllegalArgumentException("Invalid amount: " + amountValue);
+            }
+
+            Transaction.Type transactionType;
+            String typeValue = field(fields, type);
+            if (typeValue.isEmpty()) {
+                transactionType = value < 0 ? Transaction.Type.EXPENSE : Transaction.Type.INCOME;
+            } else {
+                transactionType = Transaction.Type.fromDbValue(typeValue);
+            }
+
+            String commentValue = field(fields, comment);
+            String dateValue = field(fields, date);
+
+            return new Transaction(0, profileId, transactionType, Math.abs(value),
+                    commentValue.isEmpty() ? null : commentValue,
+                    dateValue.isEmpty() ? null : parseDate(dateValue, mapping.dateFormat()),
+                    categoryId(field(fields, category)));
+        }
+
+        // Method to find or add a category by name, like TransactionControl.insert
+        private Integer categoryId(String name) {
+            if (name.isEmpty()) {
+                return null;
+            }
+            return categoryIds.computeIfAbsent(name.toLowerCase(Locale.ROOT), key -> {
+                int id = DBQueries.getOrCreateCategory(name);
+                return id == -1 ? null : id;
+            });
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index < 0 || index >= fields.size() ? "" : fields.get(index).strip();
+        }
+
+        private static int indexOf(List<String> header, String name) {
+            if (name == null) {
+                return -1;
+            }
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).strip().equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The `RecordReader` class reads CSV records one at a time. It handles
+     * quoted fields, escaped quotes and line breaks inside quotes. The returned
+     * list is reused for the next record.
+     *
+     * A quote still open at the end of the file, or after `maxRecordLength`
+     * characters, makes `next` throw an `IllegalArgumentException`. The reader
+     * then goes back to the line after the first line of that record, so one
+     * stray quote costs one record and memory stays bounded.
+     */
+    static class RecordReader {
+        private final BufferedReader reader;
+        private final char delimiter;
+        private final int maxRecordLength;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private long lineNumber = 0;
+        private long recordLine = 0;
+
+        RecordReader(BufferedReader reader, char delimiter, int maxRecordLength) {
+            this.reader = reader;
+            this.delimiter = delimiter;
+            this.maxRecordLength = maxRecordLength;
+        }
+
+        // Returns the fields of the next non-blank record, or null at the end
+        List<String> next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            recordLine = lineNumber;
+            fields.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean marked = false;
+            // Characters read after the first line, line breaks counted as two
+            long continued = 0;
+
+            while (true) {
+                for (int i = 0; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    if (quoted) {
+                        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else if (c == '"') {
+                            quoted = false;
+                        } else {
+                            field.append(c);
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                    } else if (c == delimiter) {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else {
+                        field.append(c);
+                    }
+                }
+
+                if (!quoted) {
+                    break;
+                }
+                if (!marked) {
+                    // Where to resume if the quote is never closed. The limit
+                    // leaves room for the line that crosses maxRecordLength.
+                    reader.mark(4 * maxRecordLength);
+                    marked = true;
+                }
+                // The quoted field goes on to the next line
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    throw unterminated("Unterminated quoted field at the end of the file");
+                }
+                continued += line.length() + 2;
+                if (continued > maxRecordLength) {
+                    throw unterminated("Quoted field longer than " + maxRecordLength + " characters");
+                }
+                field.append('\n');
+            }
+
+            fields.add(field.toString());
+            return fields;
+        }
+
+        // The line on which the last record started
+        long getLineNumber() {
+            return recordLine;
+        }
+
+        // Method to drop the record being read and resume after its first line
+        private IllegalArgumentException unterminated(String reason) {
+            fields.clear();
+            field.setLength(0);
+            try {
+                reader.reset();
+                lineNumber = recordLine;
+            } catch (IOException e) {
+                // A single line longer than the mark limit, resume where the
+                // reading stopped
+                LoggerControl.logMessage("CSV reader could not go back to line " + (recordLine + 1) + ": "
+                        + e.getMessage(), Level.WARNING);
+            }
+            return new IllegalArgumentException(reason);
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package myexpense.logic;
 
+import myexpense.models.Money;
+
 public class Currency {
 
     // Method to convert an amount from one currency to another based on the
-    // provided exchange rate
-    public static double convertCurrency(double amount, double exchangeRate) {
+    // provided exchange rate, the result is rounded to the nearest cent
+    public static Money convertCurrency(Money amount, double exchangeRate) {
         // Perform the conversion
-        return amount * exchangeRate;
+        return amount.times(exchangeRate);
     }
 
 }
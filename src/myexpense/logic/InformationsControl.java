@@ -1,177 +1,128 @@
 package myexpense.logic;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import myexpense.database.DBExecutor;
 import myexpense.database.DBQueries;
+import myexpense.models.CategoryTotal;
+import myexpense.models.ChartResolution;
+import myexpense.models.ChartSeries;
+import myexpense.models.Money;
+import myexpense.models.Summary;
+import myexpense.utils.AppTime;
 
 public class InformationsControl {
 
+    // Method to calculate every dashboard total of a profile in a single query
+    public static Summary calculateSummary(int accountId, int profileId) {
+        return DBQueries.getTransactionSummary(accountId, profileId, AppTime.today());
+    }
+
+    // Method to calculate the summary on a background thread, for UI callers
+    public static CompletableFuture<Summary> calculateSummaryAsync(int accountId, int profileId) {
+        return DBExecutor.read(() -> calculateSummary(accountId, profileId));
+    }
+
+    // Method to calculate the income and expense of every category over a
+    // period in a single grouped query, a null bound leaves that side open
+    public static List<CategoryTotal> calculateCategoryTotals(int accountId, int profileId, LocalDate from,
+            LocalDate to) {
+        return DBQueries.getCategoryTotals(accountId, profileId, from, to);
+    }
+
+    // Method to calculate the category totals on a background thread, for UI
+    // callers
+    public static CompletableFuture<List<CategoryTotal>> calculateCategoryTotalsAsync(int accountId,
+            int profileId, LocalDate from, LocalDate to) {
+        return DBExecutor.read(() -> calculateCategoryTotals(accountId, profileId, from, to));
+    }
+
+    // Method to calculate the category totals of the current month
+    public static List<CategoryTotal> calculateMonthlyCategoryTotals(int accountId, int profileId) {
+        LocalDate today = AppTime.today();
+        return calculateCategoryTotals(accountId, profileId, today.withDayOfMonth(1), today);
+    }
+
+    // Method to build the balance, income and expense chart series of a
+    // period, at most maxPoints points each, see ChartControl
+    public static ChartSeries calculateChartSeries(int accountId, int profileId, LocalDate from, LocalDate to,
+            ChartResolution resolution, int maxPoints) {
+        return ChartControl.getSeries(accountId, profileId, from, to, resolution, maxPoints);
+    }
+
+    // Method to build the chart series on a background thread, for UI callers
+    public static CompletableFuture<ChartSeries> calculateChartSeriesAsync(int accountId, int profileId,
+            LocalDate from, LocalDate to, ChartResolution resolution, int maxPoints) {
+        return DBExecutor.read(() -> calculateChartSeries(accountId, profileId, from, to, resolution, maxPoints));
+    }
+
+    // Method to calculate the balance of a profile at a given time, counting
+    // every transaction up to it
+    public static Money calculateBalanceAt(int accountId, int profileId, LocalDateTime asOf) {
+        return DBQueries.getBalanceAt(accountId, profileId, asOf);
+    }
+
     // Method to calculate total income for the current month
-    public static double calculateMonthlyIncome(int accountId, int profileId) {
-        double totalIncome = 0.0;
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        for (Map<String, Object> transaction : transactions) {
-            String transactionType = (String) transaction.get("transaction_type");
-            if ("income".equalsIgnoreCase(transactionType)) {
-                LocalDate transactionDate = ((java.sql.Timestamp) transaction.get("transaction_date")).toLocalDateTime()
-                        .toLocalDate();
-                if (transactionDate.getMonth() == LocalDate.now().getMonth()
-                        && transactionDate.getYear() == LocalDate.now().getYear()) {
-                    totalIncome += (double) transaction.get("amount");
-                }
-            }
-        }
-        return totalIncome;
+    public static Money calculateMonthlyIncome(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).monthlyIncome();
     }
 
     // Method to calculate total expense for the current month
-    public static double calculateMonthlyExpense(int accountId, int profileId) {
-        double totalExpense = 0.0;
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        for (Map<String, Object> transaction : transactions) {
-            String transactionType = (String) transaction.get("transaction_type");
-            if ("expense".equalsIgnoreCase(transactionType)) {
-                LocalDate transactionDate = ((java.sql.Timestamp) transaction.get("transaction_date")).toLocalDateTime()
-                        .toLocalDate();
-                if (transactionDate.getMonth() == LocalDate.now().getMonth()
-                        && transactionDate.getYear() == LocalDate.now().getYear()) {
-                    totalExpense += (double) transaction.get("amount");
-                }
-            }
-        }
-        return totalExpense;
+    public static Money calculateMonthlyExpense(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).monthlyExpense();
     }
 
     // Method to calculate total balance for the current month
-    public static double calculateMonthlyBalance(int accountId, int profileId) {
-        double totalIncome = calculateMonthlyIncome(accountId, profileId);
-        double totalExpense = calculateMonthlyExpense(accountId, profileId);
-        return totalIncome - totalExpense;
+    public static Money calculateMonthlyBalance(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).monthlyBalance();
     }
 
     // Method to calculate total income for the current day
-    public static double calculateDailyIncome(int accountId, int profileId) {
-        double totalIncome = 0.0;
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        for (Map<String, Object> transaction : transactions) {
-            String transactionType = (String) transaction.get("transaction_type");
-            if ("income".equalsIgnoreCase(transactionType)) {
-                LocalDate transactionDate = ((java.sql.Timestamp) transaction.get("transaction_date")).toLocalDateTime()
-                        .toLocalDate();
-                if (transactionDate.equals(LocalDate.now())) {
-                    totalIncome += (double) transaction.get("amount");
-                }
-            }
-        }
-        return totalIncome;
+    public static Money calculateDailyIncome(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).dailyIncome();
     }
 
     // Method to calculate total expense for the current day
-    public static double calculateDailyExpense(int accountId, int profileId) {
-        double totalExpense = 0.0;
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        for (Map<String, Object> transaction : transactions) {
-            String transactionType = (String) transaction.get("transaction_type");
-            if ("expense".equalsIgnoreCase(transactionType)) {
-                LocalDate transactionDate = ((java.sql.Timestamp) transaction.get("transaction_date")).toLocalDateTime()
-                        .toLocalDate();
-                if (transactionDate.equals(LocalDate.now())) {
-                    totalExpense += (double) transaction.get("amount");
-                }
-            }
-        }
-        return totalExpense;
+    public static Money calculateDailyExpense(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).dailyExpense();
     }
 
     // Method to calculate total balance for the current day
-    public static double calculateDailyBalance(int accountId, int profileId) {
-        double totalIncome = calculateDailyIncome(accountId, profileId);
-        double totalExpense = calculateDailyExpense(accountId, profileId);
-        return totalIncome - totalExpense;
+    public static Money calculateDailyBalance(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).dailyBalance();
     }
 
     // Method to calculate total income for the current year
-    public static double calculateYearlyIncome(int accountId, int profileId) {
-        double totalIncome = 0.0;
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        for (Map<String, Object> transaction : transactions) {
-            String transactionType = (String) transaction.get("transaction_type");
-            if ("income".equalsIgnoreCase(transactionType)) {
-                LocalDate transactionDate = ((java.sql.Timestamp) transaction.get("transaction_date")).toLocalDateTime()
-                        .toLocalDate();
-                if (transactionDate.getYear() == LocalDate.now().getYear()) {
-                    totalIncome += (double) transaction.get("amount");
-                }
-            }
-        }
-        return totalIncome;
+    public static Money calculateYearlyIncome(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).yearlyIncome();
     }
 
     // Method to calculate total expense for the current year
-    public static double calculateYearlyExpense(int accountId, int profileId) {
-        double totalExpense = 0.0;
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        for (Map<String, Object> transaction : transactions) {
-            String transactionType = (String) transaction.get("transaction_type");
-            if ("expense".equalsIgnoreCase(transactionType)) {
-                LocalDate transactionDate = ((java.sql.Timestamp) transaction.get("transaction_date")).toLocalDateTime()
-                        .toLocalDate();
-                if (transactionDate.getYear() == LocalDate.now().getYear()) {
-                    totalExpense += (double) transaction.get("amount");
-                }
-            }
-        }
-        return totalExpense;
+    public static Money calculateYearlyExpense(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).yearlyExpense();
     }
 
     // Method to calculate total balance for the current year
-    public static double calculateYearlyBalance(int accountId, int profileId) {
-        double totalIncome = calculateYearlyIncome(accountId, profileId);
-        double totalExpense = calculateYearlyExpense(accountId, profileId);
-        return totalIncome - totalExpense;
+    public static Money calculateYearlyBalance(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).yearlyBalance();
     }
 
     // Method to calculate total income for all time
-    public static double calculateTotalIncome(int accountId, int profileId) {
-        double totalIncome = 0.0;
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        for (Map<String, Object> transaction : transactions) {
-            String transactionType = (String) transaction.get("transaction_type");
-            if ("income".equalsIgnoreCase(transactionType)) {
-                totalIncome += (double) transaction.get("amount");
-            }
-        }
-        return totalIncome;
+    public static Money calculateTotalIncome(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).totalIncome();
     }
 
     // Method to calculate total expense for all time
-    public static double calculateTotalExpense(int accountId, int profileId) {
-        double totalExpense = 0.0;
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        for (Map<String, Object> transaction : transactions) {
-            String transactionType = (String) transaction.get("transaction_type");
-            if ("expense".equalsIgnoreCase(transactionType)) {
-                totalExpense += (double) transaction.get("amount");
-            }
-        }
-        return totalExpense;
+    public static Money calculateTotalExpense(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).totalExpense();
     }
 
     // Method to calculate total balance for all time
-    public static double calculateTotalBalance(int accountId, int profileId) {
-        double totalIncome = calculateTotalIncome(accountId, profileId);
-        double totalExpense = calculateTotalExpense(accountId, profileId);
-        return totalIncome - totalExpense;
+    public static Money calculateTotalBalance(int accountId, int profileId) {
+        return calculateSummary(accountId, profileId).totalBalance();
     }
 
 }
@@ -4,63 +4,106 @@
 package myexpense.logic;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import myexpense.database.DBExecutor;
 import myexpense.database.DBQueries;
+import myexpense.models.BatchResult;
+import myexpense.models.Money;
+import myexpense.models.Transaction;
+import myexpense.models.TransactionFilter;
 
 public class TransactionControl {
     // Method to insert a transaction
-    public static int insert(int accountId, int profileId, double amount, String type, String comment) {
+    public static int insert(int accountId, int profileId, Money amount, String type, String comment) {
         return DBQueries.insertTransaction(accountId, profileId, type, amount, comment);
     }
 
+    // Method to insert a transaction with a category, the category is created
+    // the first time its name is used
+    public static int insert(int accountId, int profileId, Money amount, String type, String comment,
+            String category) {
+        Integer categoryId = null;
+        if (category != null && !category.isBlank()) {
+            int id = DBQueries.getOrCreateCategory(category.strip());
+            categoryId = id == -1 ? null : id;
+        }
+        return DBQueries.insertTransaction(accountId, profileId, type, amount, comment, categoryId);
+    }
+
+    // Method to insert a transaction on the writer lane, for UI callers
+    public static CompletableFuture<Integer> insertAsync(int accountId, int profileId, Money amount, String type,
+            String comment) {
+        return DBExecutor.write(() -> insert(accountId, profileId, amount, type, comment));
+    }
+
+    // Method to insert many transactions in a single database transaction, see
+    // DBQueries.insertTransactions
+    public static BatchResult insertAll(Iterable<Transaction> transactions, int chunkSize) {
+        return DBQueries.insertTransactions(transactions, chunkSize);
+    }
+
+    // Method to insert many transactions on the writer lane, for UI callers
+    public static CompletableFuture<BatchResult> insertAllAsync(List<Transaction> transactions, int chunkSize) {
+        return DBExecutor.write(() -> insertAll(transactions, chunkSize));
+    }
+
     // Method to remove a transaction by its ID
     public boolean remove(int accountId, int profileId, int transactionId) {
         return DBQueries.removeTransaction(accountId, profileId, transactionId);
     }
 
+    // Method to remove a transaction on the writer lane, for UI callers
+    public CompletableFuture<Boolean> removeAsync(int accountId, int profileId, int transactionId) {
+        return DBExecutor.write(() -> remove(accountId, profileId, transactionId));
+    }
+
     // Method to update a transaction
-    public boolean update(int transactionId, double newAmount, String newType, String newComment) {
+    public boolean update(int transactionId, Money newAmount, String newType, String newComment) {
         return DBQueries.updateTransaction(transactionId, transactionId, transactionId, newType, newAmount, newComment);
     }
 
-    // Method to retrieve a transaction by its ID
-    public Map<String, Object> getById(int accountId, int profileId, int transactionId) {
-        Map<String, Object> transaction = new HashMap<>();
-        transaction = DBQueries.getTransactionsByProfile(accountId, profileId).get(transactionId);
+    // Method to update a transaction on the writer lane, for UI callers
+    public CompletableFuture<Boolean> updateAsync(int transactionId, Money newAmount, String newType,
+            String newComment) {
+        return DBExecutor.write(() -> update(transactionId, newAmount, newType, newComment));
+    }
 
-        return transaction;
+    // Method to retrieve a transaction by its ID
+    public Transaction getById(int accountId, int profileId, int transactionId) {
+        return DBQueries.getTransactionById(accountId, profileId, transactionId);
     }
 
     // Method to retrieve all transactions by accountId and profileId with optional
     // date filtering
-    public List<Map<String, Object>> getAllById(int accountId, int profileId, LocalDate startDate, LocalDate endDate) {
-        List<Map<String, Object>> transactions = DBQueries.getTransactionsByProfile(accountId, profileId);
-
-        // If both startDate and endDate are null, return all transactions
-        if (startDate == null && endDate == null) {
-            return transactions;
-        }
+    public List<Transaction> getAllById(int accountId, int profileId, LocalDate startDate, LocalDate endDate) {
+        return DBQueries.getTransactionsFiltered(accountId, profileId, TransactionFilter.between(startDate, endDate));
+    }
 
-        // Filter transactions by date
-        List<Map<String, Object>> filteredTransactions = new ArrayList<>();
-        for (Map<String, Object> transaction : transactions) {
-            LocalDate transactionDate = ((java.sql.Timestamp) transaction.get("transaction_date")).toLocalDateTime()
-                    .toLocalDate();
+    // Method to retrieve the transactions matching a filter (date range, type,
+    // amount range), the filtering is done by the database
+    public List<Transaction> getFiltered(int accountId, int profileId, TransactionFilter filter) {
+        return DBQueries.getTransactionsFiltered(accountId, profileId, filter);
+    }
 
-            boolean isAfterStartDate = (startDate == null || !transactionDate.isBefore(startDate));
-            boolean isBeforeEndDate = (endDate == null || !transactionDate.isAfter(endDate));
+    // Method to retrieve the transactions matching a filter on a background
+    // thread, for UI callers
+    public CompletableFuture<List<Transaction>> getFilteredAsync(int accountId, int profileId,
+            TransactionFilter filter) {
+        return DBExecutor.read(() -> getFiltered(accountId, profileId, filter));
+    }
 
-            // Add the transaction if it meets the date filtering conditions
-            if (isAfterStartDate && isBeforeEndDate) {
-                filteredTransactions.add(transaction);
-            }
-        }
+    // Method to search the comments of a profile's transactions, best matches
+    // first, one page at a time. Every word must match, as a word prefix.
+    public List<Transaction> search(int accountId, int profileId, String text, int offset, int limit) {
+        return DBQueries.searchTransactions(accountId, profileId, text, offset, limit);
+    }
 
-        return filteredTransactions;
+    // Method to search the comments on a background thread, for UI callers
+    public CompletableFuture<List<Transaction>> searchAsync(int accountId, int profileId, String text, int offset,
+            int limit) {
+        return DBExecutor.read(() -> search(accountId, profileId, text, offset, limit));
     }
 
 }
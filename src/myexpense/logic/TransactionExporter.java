@@ -0,0 +1,139 @@
+/**
+ * @author rahim
+ */
+package myexpense.logic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.logging.Level;
+
+import myexpense.database.DBQueries;
+import myexpense.database.TransactionRowMapper;
+import myexpense.models.Money;
+import myexpense.models.Transaction;
+import myexpense.models.TransactionFilter;
+import myexpense.utils.Json;
+import myexpense.utils.LoggerControl;
+
+/**
+ * The `TransactionExporter` class writes the transactions of a profile to a
+ * CSV or JSON Lines file. Rows go straight from the database cursor to a
+ * buffered file channel, so exporting a long history needs no more memory
+ * than exporting a short one.
+ */
+public class TransactionExporter {
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The `Format` enum lists the supported output formats.
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    /**
+     * The `export` method writes the transactions of a profile, ordered by
+     * date, to a file. An existing file is replaced.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @param startDate the first day to export, or `null`
+     * @param endDate   the last day to export, or `null`
+     * @param file      the output file
+     * @param format    the output format
+     * @return the number of exported transactions
+     * @throws IOException if the file cannot be written or the query fails
+     */
+    public static long export(int accountId, int profileId, LocalDate startDate, LocalDate endDate, Path file,
+            Format format) throws IOException {
+        long start = System.nanoTime();
+        long count;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8),
+                        WRITE_BUFFER_SIZE)) {
+
+            if (format == Format.CSV) {
+                writer.write("transaction_id,profile_id,transaction_type,amount,comment,category,transaction_date\n");
+            }
+
+            // Names rather than ids, so the file can be imported into another
+            // database
+            Map<Integer, String> categories = DBQueries.getCategories();
+            StringBuilder line = new StringBuilder(128);
+            count = DBQueries.streamTransactions(accountId, profileId, TransactionFilter.between(startDate, endDate),
+                    transaction -> {
+                        line.setLength(0);
+                        if (format == Format.CSV) {
+                            appendCsv(line, transaction, categories);
+                        } else {
+                            appendJson(line, transaction, categories);
+                        }
+                        try {
+                            writer.append(line);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (SQLException e) {
+            throw new IOException("Error reading transactions: " + e.getMessage(), e);
+        }
+
+        LoggerControl.logMessage("Exported " + count + " transactions to " + file.getFileName() + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms", Level.INFO);
+        return count;
+    }
+
+    private static void appendCsv(StringBuilder line, Transaction transaction, Map<Integer, String> categories) {
+        line.append(transaction.id()).append(',')
+                .append(transaction.profileId()).append(',')
+                .append(transaction.type().getDbValue()).append(',');
+        Money.appendTo(line, transaction.amountCents()).append(',');
+        appendCsvField(line, transaction.comment());
+        line.append(',');
+        appendCsvField(line, category(transaction, categories));
+        line.append(',').append(TransactionRowMapper.formatDate(transaction.date())).append('\n');
+    }
+
+    private static void appendCsvField(StringBuilder line, String value) {
+        if (value != null) {
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+    }
+
+    private static void appendJson(StringBuilder line, Transaction transaction, Map<Integer, String> categories) {
+        line.append("{\"transaction_id\":").append(transaction.id())
+                .append(",\"profile_id\":").append(transaction.profileId())
+                .append(",\"transaction_type\":\"").append(transaction.type().getDbValue())
+                .append("\",\"amount\":");
+        Money.appendTo(line, transaction.amountCents()).append(",\"comment\":");
+        Json.appendString(line, transaction.comment());
+        line.append(",\"category\":");
+        Json.appendString(line, category(transaction, categories));
+        line.append(",\"transaction_date\":\"").append(TransactionRowMapper.formatDate(transaction.date()))
+                .append("\"}\n");
+    }
+
+    private static String category(Transaction transaction, Map<Integer, String> categories) {
+        return transaction.categoryId() == null ? null : categories.get(transaction.categoryId());
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import java.util.List;
+
+/**
+ * The `BatchResult` record reports the outcome of a batch insertion. The
+ * generated ids are in input order, a failed row has the id -1 and a matching
+ * entry in `failures`.
+ *
+ * @param generatedIds the generated id of every input row, -1 if it failed
+ * @param failures     the rows that could not be inserted
+ */
+public record BatchResult(int[] generatedIds, List<Failure> failures) {
+
+    /**
+     * The `Failure` record describes one rejected row.
+     *
+     * @param index  the position of the row in the input
+     * @param reason the error reported by the database
+     */
+    public record Failure(int index, String reason) {
+    }
+
+    public int insertedCount() {
+        return generatedIds.length - failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
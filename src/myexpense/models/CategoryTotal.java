@@ -0,0 +1,23 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+/**
+ * The `CategoryTotal` record holds the totals of one category of a profile
+ * over a period.
+ *
+ * @param categoryId the id of the category, `null` for the transactions
+ *                   without a category
+ * @param name       the name of the category, `null` for the transactions
+ *                   without a category
+ * @param income     the total of the incomes
+ * @param expense    the total of the expenses
+ * @param count      the number of transactions
+ */
+public record CategoryTotal(Integer categoryId, String name, Money income, Money expense, long count) {
+
+    public Money balance() {
+        return income.minus(expense);
+    }
+}
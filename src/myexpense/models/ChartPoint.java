@@ -0,0 +1,19 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import java.time.LocalDate;
+
+/**
+ * The `ChartPoint` record is one point of a chart series.
+ *
+ * @param date       the first day of the period of the point
+ * @param valueCents the value of the point, in cents
+ */
+public record ChartPoint(LocalDate date, long valueCents) {
+
+    public Money value() {
+        return Money.ofCents(valueCents);
+    }
+}
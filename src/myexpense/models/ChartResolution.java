@@ -0,0 +1,17 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+/**
+ * The `ChartResolution` enum lists the periods a chart series can be bucketed
+ * by. Weeks start on Monday, fiscal years on `AppTime.FISCAL_YEAR_START`.
+ */
+public enum ChartResolution {
+    DAY,
+    WEEK,
+    MONTH,
+    QUARTER,
+    YEAR,
+    FISCAL_YEAR
+}
@@ -0,0 +1,29 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import java.util.List;
+
+/**
+ * The `ChartSeries` record holds the series of a profile's chart over a date
+ * range. Periods without transactions have no point.
+ *
+ * @param resolution the period of each point
+ * @param balance    the balance at the end of each period
+ * @param income     the total of the incomes of each period
+ * @param expense    the total of the expenses of each period
+ */
+public record ChartSeries(
+        ChartResolution resolution,
+        List<ChartPoint> balance,
+        List<ChartPoint> income,
+        List<ChartPoint> expense) {
+
+    /**
+     * An empty series, used when the query failed.
+     */
+    public static ChartSeries empty(ChartResolution resolution) {
+        return new ChartSeries(resolution, List.of(), List.of(), List.of());
+    }
+}
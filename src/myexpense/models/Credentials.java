@@ -0,0 +1,13 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+/**
+ * The `Credentials` record holds what a login needs to know about an account.
+ *
+ * @param accountId    the id of the account
+ * @param passwordHash the stored password hash, see `PasswordHasher`
+ */
+public record Credentials(int accountId, String passwordHash) {
+}
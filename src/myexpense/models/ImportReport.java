@@ -0,0 +1,33 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import java.util.List;
+
+/**
+ * The `ImportReport` record summarizes a file import: how many rows were read,
+ * imported and rejected, how long it took, and the first rejected rows.
+ *
+ * @param rowsRead     the number of data rows read from the file
+ * @param rowsImported the number of rows inserted in the database
+ * @param rowsRejected the number of rows rejected by validation or the database
+ * @param elapsedNanos the duration of the import
+ * @param rejections   the first rejected rows, capped to keep memory bounded
+ */
+public record ImportReport(long rowsRead, long rowsImported, long rowsRejected, long elapsedNanos,
+        List<Rejection> rejections) {
+
+    /**
+     * The `Rejection` record describes one rejected row.
+     *
+     * @param lineNumber the line of the row in the file, starting at 1
+     * @param reason     why the row was rejected
+     */
+    public record Rejection(long lineNumber, String reason) {
+    }
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+}
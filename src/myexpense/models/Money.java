@@ -0,0 +1,181 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The `Money` record is an exact amount of money stored as a `long` number of
+ * cents, the unit of the `amount` column. Sums are plain `long` additions, so
+ * there is no rounding drift and no `BigDecimal` on the hot paths.
+ *
+ * Hot loops (aggregates, row mapping) work on the raw cents through the static
+ * helpers; a `Money` is only built where a value leaves them.
+ *
+ * @param cents the amount in cents
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 100;
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * The `of` function rounds a `double` amount to the nearest cent, half away
+     * from zero. It is meant for values coming from outside (e.g. an exchange
+     * rate result), not for stored amounts. The amount is rounded as it is
+     * written, so `1.005` gives `1.01` although its `double` is slightly less.
+     *
+     * @param amount the amount in currency units
+     * @return the rounded amount
+     * @throws ArithmeticException if the amount does not fit in cents
+     */
+    public static Money of(double amount) {
+        if (!Double.isFinite(amount)) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+        return ofCents(BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue()
+                .longValueExact());
+    }
+
+    /**
+     * The `parse` function reads a decimal amount such as `12`, `-3.5` or
+     * `1234.56`.
+     *
+     * @param text the text to parse
+     * @return the parsed amount
+     * @throws NumberFormatException if the text is not an amount with at most
+     *                               two decimals
+     */
+    public static Money parse(String text) {
+        return ofCents(parseCents(text));
+    }
+
+    /**
+     * The `parseCents` function reads a decimal amount straight into cents,
+     * without going through `double` or `BigDecimal`.
+     *
+     * @param text the text to parse, optionally signed, `.` as decimal point
+     * @return the amount in cents
+     * @throws NumberFormatException if the text is not an amount with at most
+     *                               two decimals
+     */
+    public static long parseCents(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+
+        long units = 0;
+        int unitDigits = 0;
+        for (; i < length && text.charAt(i) != '.'; i++) {
+            units = Math.addExact(Math.multiplyExact(units, 10), digit(text, i));
+            unitDigits++;
+        }
+
+        long cents = 0;
+        int centDigits = 0;
+        if (i < length) {
+            for (i++; i < length; i++) {
+                if (++centDigits > 2) {
+                    throw new NumberFormatException("More than two decimals: " + text);
+                }
+                cents = cents * 10 + digit(text, i);
+            }
+            if (centDigits == 1) {
+                cents *= 10;
+            }
+        }
+
+        if (unitDigits == 0 && centDigits == 0) {
+            throw new NumberFormatException("Invalid amount: \"" + text + "\"");
+        }
+        long value = Math.addExact(Math.multiplyExact(units, SCALE), cents);
+        return negative ? -value : value;
+    }
+
+    /**
+     * The `appendTo` function writes an amount in cents as `-1234.56`, without
+     * allocating, e.g. when exporting rows.
+     *
+     * @param sb    the builder to append to
+     * @param cents the amount in cents
+     * @return the builder
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+        }
+        long units = Math.abs(cents / SCALE);
+        int fraction = (int) Math.abs(cents % SCALE);
+        sb.append(units).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    /**
+     * The `times` function multiplies the amount by a factor, e.g. an exchange
+     * rate, and rounds the result to the nearest cent, half away from zero.
+     *
+     * @param factor the factor
+     * @return the rounded product
+     */
+    public Money times(double factor) {
+        double product = cents * factor;
+        if (!Double.isFinite(product)) {
+            throw new IllegalArgumentException("Invalid factor: " + factor);
+        }
+        // Math.round alone rounds halves up, -0.5 would give 0
+        long rounded = Math.round(Math.abs(product));
+        return ofCents(product < 0 ? -rounded : rounded);
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public double toDouble() {
+        return cents / (double) SCALE;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+
+    private static int digit(CharSequence text, int index) {
+        char c = text.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Invalid amount: \"" + text + "\"");
+        }
+        return c - '0';
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import java.time.LocalDate;
+
+/**
+ * The `PeriodTotal` record holds the totals of a profile for one period of a
+ * `ChartResolution`, in cents.
+ *
+ * @param start        the first day of the period
+ * @param incomeCents  the total of the incomes of the period
+ * @param expenseCents the total of the expenses of the period
+ * @param balanceCents the balance of the profile at the end of the period,
+ *                     counting every earlier transaction
+ */
+public record PeriodTotal(LocalDate start, long incomeCents, long expenseCents, long balanceCents) {
+}
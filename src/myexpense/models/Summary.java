@@ -0,0 +1,56 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+/**
+ * The `Summary` record holds the income and expense totals of a profile for the
+ * current day, month, year and for all time. It is computed in a single pass
+ * over the profile's transactions and is immutable once built. The totals are
+ * exact, they are summed in cents.
+ */
+public record Summary(
+        Money dailyIncome,
+        Money dailyExpense,
+        Money monthlyIncome,
+        Money monthlyExpense,
+        Money yearlyIncome,
+        Money yearlyExpense,
+        Money totalIncome,
+        Money totalExpense) {
+
+    /**
+     * An empty summary, used when the profile has no transactions or the query
+     * failed.
+     */
+    public static final Summary EMPTY = ofCents(new long[8]);
+
+    /**
+     * Builds a summary from totals in cents, in the order of the record
+     * components.
+     *
+     * @param cents the eight totals, in cents
+     * @return the summary
+     */
+    public static Summary ofCents(long[] cents) {
+        return new Summary(Money.ofCents(cents[0]), Money.ofCents(cents[1]), Money.ofCents(cents[2]),
+                Money.ofCents(cents[3]), Money.ofCents(cents[4]), Money.ofCents(cents[5]),
+                Money.ofCents(cents[6]), Money.ofCents(cents[7]));
+    }
+
+    public Money dailyBalance() {
+        return dailyIncome.minus(dailyExpense);
+    }
+
+    public Money monthlyBalance() {
+        return monthlyIncome.minus(monthlyExpense);
+    }
+
+    public Money yearlyBalance() {
+        return yearlyIncome.minus(yearlyExpense);
+    }
+
+    public Money totalBalance() {
+        return totalIncome.minus(totalExpense);
+    }
+}
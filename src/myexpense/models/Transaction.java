@@ -0,0 +1,96 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * The `Transaction` record represents one row of the Transactions table. It
+ * keeps the amount as a primitive number of cents and the type as an enum, so
+ * a row costs a single object plus its comment and date.
+ *
+ * @param id          the transaction id
+ * @param profileId   the profile the transaction belongs to
+ * @param type        the transaction type
+ * @param amountCents the amount of the transaction, in cents
+ * @param comment     the optional comment, may be `null`
+ * @param date        the date and time of the transaction
+ * @param categoryId  the id of its category in the Categories table, `null`
+ *                    if it has none
+ */
+public record Transaction(
+        int id,
+        int profileId,
+        Type type,
+        long amountCents,
+        String comment,
+        LocalDateTime date,
+        Integer categoryId) {
+
+    /**
+     * Creates a transaction without a category.
+     */
+    public Transaction(int id, int profileId, Type type, long amountCents, String comment, LocalDateTime date) {
+        this(id, profileId, type, amountCents, comment, date, null);
+    }
+
+    /**
+     * The `Type` enum lists the transaction types stored in the
+     * `transaction_type` column.
+     */
+    public enum Type {
+        INCOME("income"),
+        EXPENSE("expense");
+
+        private final String dbValue;
+
+        Type(String dbValue) {
+            this.dbValue = dbValue;
+        }
+
+        /**
+         * The getDbValue function returns the value stored in the database.
+         *
+         * @return `income` or `expense`
+         */
+        public String getDbValue() {
+            return dbValue;
+        }
+
+        /**
+         * The fromDbValue function returns the type matching a database value.
+         *
+         * @param value the stored value, case is ignored
+         * @return the matching type
+         * @throws IllegalArgumentException if the value is not a known type
+         */
+        public static Type fromDbValue(String value) {
+            if (INCOME.dbValue.equalsIgnoreCase(value)) {
+                return INCOME;
+            }
+            if (EXPENSE.dbValue.equalsIgnoreCase(value)) {
+                return EXPENSE;
+            }
+            throw new IllegalArgumentException("Unknown transaction type: " + value);
+        }
+    }
+
+    public Money amount() {
+        return Money.ofCents(amountCents);
+    }
+
+    /**
+     * The signedCents function returns the amount as it affects the balance:
+     * positive for incomes and negative for expenses.
+     *
+     * @return the signed amount, in cents
+     */
+    public long signedCents() {
+        return type == Type.INCOME ? amountCents : -amountCents;
+    }
+
+    public Money signedAmount() {
+        return Money.ofCents(signedCents());
+    }
+}
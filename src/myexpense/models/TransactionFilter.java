@@ -0,0 +1,41 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import java.time.LocalDate;
+
+/**
+ * The `TransactionFilter` record describes which transactions of a profile a
+ * query should return. Every field is optional, a `null` value means the
+ * criterion is not applied.
+ *
+ * @param startDate the first day to include
+ * @param endDate   the last day to include
+ * @param type      the transaction type, `income` or `expense`
+ * @param minAmount the smallest amount to include
+ * @param maxAmount the largest amount to include
+ */
+public record TransactionFilter(
+        LocalDate startDate,
+        LocalDate endDate,
+        String type,
+        Money minAmount,
+        Money maxAmount) {
+
+    /**
+     * A filter that matches every transaction.
+     */
+    public static final TransactionFilter ALL = new TransactionFilter(null, null, null, null, null);
+
+    /**
+     * Builds a filter on a date range only.
+     *
+     * @param startDate the first day to include, or `null`
+     * @param endDate   the last day to include, or `null`
+     * @return the filter
+     */
+    public static TransactionFilter between(LocalDate startDate, LocalDate endDate) {
+        return new TransactionFilter(startDate, endDate, null, null, null);
+    }
+}
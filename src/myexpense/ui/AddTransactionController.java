@@ -1,5 +1,6 @@
 package myexpense.ui;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -11,6 +12,7 @@ import javafx.scene.control.TextField;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import myexpense.logic.TransactionControl;
+import myexpense.models.Money;
 
 public class AddTransactionController {
     private int profileId = 1; // Default profile ID, should be passed dynamically
@@ -83,18 +85,21 @@ public class AddTransactionController {
         if (validateInput()) {
             // Determine transaction type
             boolean isIncome = incomeRadioButton.isSelected();
-            boolean isExpense = expenceRadioButton.isSelected();
-            double amount = Double.parseDouble(amountTextField.getText());
+            Money amount = Money.parse(amountTextField.getText().strip());
             String comment = commentTextArea.getText();
 
-            if (isIncome) {
-                TransactionControl.insert(MyFunctions.accountId, 1, amount, "income", comment);
-            } else if (isExpense) {
-                TransactionControl.insert(MyFunctions.accountId, 1, amount, "expense", comment);
-            }
-
-            isSubmitted = true;
-            stage.close();
+            // validateInput ensures one of the two is selected
+            String type = isIncome ? "income" : "expense";
+
+            // The insert runs on the writer lane, the dialog closes once it is
+            // committed so the caller refreshes with the new row
+            submitButton.setDisable(true);
+            TransactionControl.insertAsync(MyFunctions.accountId, 1, amount, type, comment)
+                    .whenCompleteAsync((transactionId, error) -> {
+                        submitButton.setDisable(false);
+                        isSubmitted = error == null && transactionId != -1;
+                        stage.close();
+                    }, Platform::runLater);
         }
     }
 
@@ -111,8 +116,8 @@ public class AddTransactionController {
         }
 
         try {
-            Double.parseDouble(amountTextField.getText());
-        } catch (NumberFormatException e) {
+            Money.parse(amountTextField.getText().strip());
+        } catch (NumberFormatException | ArithmeticException e) {
             // Show error dialog about invalid amount
             return false;
         }
@@ -126,8 +131,8 @@ public class AddTransactionController {
     }
 
     // Getter methods to retrieve transaction details if needed
-    public double getAmount() {
-        return Double.parseDouble(amountTextField.getText());
+    public Money getAmount() {
+        return Money.parse(amountTextField.getText().strip());
     }
 
     public boolean isIncome() {
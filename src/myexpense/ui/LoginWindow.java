@@ -9,6 +9,7 @@ import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -19,7 +20,6 @@ import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import myexpense.logic.AuthControl;
-import myexpense.utils.ExceptionControl.AuthException;
 import myexpense.utils.ExceptionControl.NotFoundException;
 import myexpense.utils.LoggerControl;
 
@@ -39,51 +39,66 @@ public class LoginWindow implements Initializable {
     private Button loginButton;
 
     @FXML
-    private void loginAction(ActionEvent event) throws AuthException {
+    private void loginAction(ActionEvent event) {
         String username = usernameTextField.getText().strip();
         String password = passwordPasswordField.getText().strip();
 
-        try {
-
-            int accountId = AuthControl.authenticate(username, password);
-            if (accountId != -1) {
-                // Successful login, load main window
-                MyFunctions.loadMyExpense(accountId);
-                LoggerControl.logMessage("Successful login", Level.FINE);
-                Stage stage = (Stage) loginButton.getScene().getWindow();
-                stage.close();
-                return; // Successful login, no feedback required
+        // Hashing and the account lookup run in the background, the result is
+        // applied back on the FX thread
+        loginButton.setDisable(true);
+        AuthControl.authenticateAsync(username, password).whenCompleteAsync((accountId, error) -> {
+            loginButton.setDisable(false);
+            if (error == null) {
+                onAuthenticated(accountId);
+            } else if (error.getCause() instanceof NotFoundException) {
+                onAccountNotFound(username, password);
             } else {
-                // Password not correct
+                LoggerControl.logMessage("Login failed: " + error.getMessage(), Level.SEVERE);
                 feedbackLabel.setTextFill(javafx.scene.paint.Color.RED);
-                feedbackLabel.setText("Invalid username or password");
-                return;
+                feedbackLabel.setText("Login failed, please try again");
             }
+        }, Platform::runLater);
+    }
 
-        } catch (NotFoundException e) {
-            try {
-                Optional respond = AuthControl
-                        .showConfirmPopup("You're about to create a new account, proceed?");
-                if (respond.isPresent() && respond.get() == ButtonType.OK) {
-                    // User confirmed to proceed
-                    int newAccountId = AuthControl.register(username, password);
+    private void onAuthenticated(int accountId) {
+        if (accountId != -1) {
+            // Successful login, load main window
+            MyFunctions.loadMyExpense(accountId);
+            LoggerControl.logMessage("Successful login", Level.FINE);
+            Stage stage = (Stage) loginButton.getScene().getWindow();
+            stage.close();
+        } else {
+            // Password not correct
+            feedbackLabel.setTextFill(javafx.scene.paint.Color.RED);
+            feedbackLabel.setText("Invalid username or password");
+        }
+    }
+
+    private void onAccountNotFound(String username, String password) {
+        Optional respond = AuthControl
+                .showConfirmPopup("You're about to create a new account, proceed?");
+        if (respond.isPresent() && respond.get() == ButtonType.OK) {
+            // User confirmed to proceed
+            loginButton.setDisable(true);
+            AuthControl.registerAsync(username, password).whenCompleteAsync((newAccountId, error) -> {
+                loginButton.setDisable(false);
+                if (error == null) {
                     MyFunctions.loadMyExpense(newAccountId);
                     LoggerControl.logMessage("User confirmed to proceed", Level.FINE);
                     Stage stage = (Stage) loginButton.getScene().getWindow();
                     stage.close();
-                    return;
                 } else {
-                    // User cancelled
-                    feedbackLabel.setTextFill(javafx.scene.paint.Color.ORANGE);
-                    feedbackLabel.setText("Account creation canceled.");
-                    throw new AuthException("Account creation canceled");
+                    // Registration failed
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    feedbackLabel.setTextFill(javafx.scene.paint.Color.RED);
+                    feedbackLabel.setText(cause.getMessage());
                 }
-            } catch (IllegalArgumentException eIllegalArgument) {
-                // Registration failed due to invalid input
-                feedbackLabel.setTextFill(javafx.scene.paint.Color.RED);
-                feedbackLabel.setText(eIllegalArgument.getMessage());
-                return;
-            }
+            }, Platform::runLater);
+        } else {
+            // User cancelled
+            feedbackLabel.setTextFill(javafx.scene.paint.Color.ORANGE);
+            feedbackLabel.setText("Account creation canceled.");
+            LoggerControl.logMessage("Account creation canceled", Level.FINE);
         }
     }
 
@@ -1,5 +1,14 @@
 package myexpense.ui;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -10,8 +19,15 @@ import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import myexpense.logic.InformationsControl;
+import myexpense.models.Money;
+import myexpense.models.Summary;
+import myexpense.models.Transaction;
+import myexpense.utils.LoggerControl;
+import myexpense.utils.StartupTimer;
 
 public class MyFunctions {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
     private int profileId = 1;
 
     // FXML ID for the TextFields
@@ -36,18 +52,73 @@ public class MyFunctions {
 
     // FXML ID for the TableView and TableColumns
     @FXML
-    private TableView transactionsTable;
+    private TableView<Transaction> transactionsTable;
     @FXML
-    private TableColumn costColumn;
+    private TableColumn<Transaction, Money> costColumn;
     @FXML
-    private TableColumn typeColumn;
+    private TableColumn<Transaction, String> typeColumn;
     @FXML
-    private TableColumn commentColumn;
+    private TableColumn<Transaction, String> commentColumn;
     @FXML
-    private TableColumn dateColumn;
+    private TableColumn<Transaction, String> dateColumn;
+    @FXML
+    private TableColumn<Transaction, Money> balanceColumn;
+
+    private TransactionPager transactionPager;
 
     public static int accountId;
 
+    // The main window parsed ahead of time, taken by the next loadMyExpense
+    private static CompletableFuture<FXMLLoader> preloaded;
+
+    /**
+     * The `preloadMainWindow` function parses MyExpenseWindow.fxml on a
+     * background thread, while the login window is shown, so opening the main
+     * window after login only has to show it. The nodes are not attached to
+     * a scene yet, so building them off the FX thread is allowed.
+     *
+     * @return a future completed once the window is parsed
+     */
+    public static synchronized CompletableFuture<FXMLLoader> preloadMainWindow() {
+        if (preloaded == null) {
+            preloaded = CompletableFuture.supplyAsync(() -> {
+                FXMLLoader[] loader = new FXMLLoader[1];
+                StartupTimer.time("main window preload", () -> loader[0] = loadMainWindow());
+                return loader[0];
+            }, task -> Thread.ofPlatform().daemon().name("fxml-preload").start(task));
+        }
+        return preloaded;
+    }
+
+    // Method to take the preloaded main window, null if there is none
+    private static FXMLLoader takePreloaded() {
+        CompletableFuture<FXMLLoader> pending;
+        synchronized (MyFunctions.class) {
+            pending = preloaded;
+            preloaded = null;
+        }
+        if (pending == null) {
+            return null;
+        }
+        try {
+            // Started at login, at worst the rest of the parsing is awaited
+            return pending.join();
+        } catch (CompletionException e) {
+            LoggerControl.logMessage("Error preloading main window: " + e.getMessage(), Level.WARNING);
+            return null;
+        }
+    }
+
+    private static FXMLLoader loadMainWindow() {
+        FXMLLoader loader = new FXMLLoader(MyFunctions.class.getResource("/myexpense/ui/MyExpenseWindow.fxml"));
+        try {
+            loader.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return loader;
+    }
+
     /**
      * This function is responsible for loading the MyExpenseWindow.fxml file and
      * setting up a new stage for the application.
@@ -58,29 +129,22 @@ public class MyFunctions {
     public static void loadMyExpense(int thisaccountId) {
         accountId = thisaccountId;
         try {
-            // Load FXML for main window
-            FXMLLoader loader = new FXMLLoader(MyFunctions.class.getResource("/myexpense/ui/MyExpenseWindow.fxml"));
-            Parent root = loader.load();
-
-            // Fetching the transaction summary using InformationsControl
-            double dailyIncome = InformationsControl.calculateDailyIncome(accountId, 1);
-            double dailyExpense = InformationsControl.calculateDailyExpense(accountId, 1);
-            double dailyBalance = InformationsControl.calculateDailyBalance(accountId, 1);
-            double monthlyIncome = InformationsControl.calculateMonthlyIncome(accountId, 1);
-            double annualIncome = InformationsControl.calculateYearlyIncome(accountId, 1);
-            double averageDailyIncome = InformationsControl.calculateDailyIncome(accountId, 1);
+            // Load FXML for main window, parsed in the background since login
+            FXMLLoader loader = takePreloaded();
+            if (loader == null) {
+                loader = loadMainWindow();
+            }
+            Parent root = loader.getRoot();
 
             // Accessing the TextFields directly from the FXML
             MyFunctions controller = loader.getController();
 
-            // Setting the daily financial data in the TextFields
-            controller.balanceTextField.setText(String.valueOf(dailyBalance));
-            controller.todayBalanceTextField.setText(String.valueOf(dailyBalance));
-            controller.todayIncomeTextField.setText(String.valueOf(dailyIncome));
-            controller.todayExpenseTextField.setText(String.valueOf(dailyExpense));
-            controller.averageDailyIncomeTextField.setText(String.valueOf(averageDailyIncome));
-            controller.averageMonthlyIncomeTextField.setText(String.valueOf(monthlyIncome));
-            controller.averageAnnualIncomeTextField.setText(String.valueOf(annualIncome));
+            // Fetching the summary and the table rows in the background, the
+            // window is shown right away and filled when they arrive
+            InformationsControl.calculateSummaryAsync(accountId, 1)
+                    .thenAcceptAsync(controller::showSummary, Platform::runLater);
+            TransactionPager.loadAsync(accountId, 1)
+                    .thenAcceptAsync(controller::showTransactions, Platform::runLater);
 
             // Set up the stage to display the window
             Stage currentStage = new Stage();
@@ -88,6 +152,7 @@ public class MyFunctions {
             currentStage.setScene(scene);
             currentStage.setTitle("MyExpense - Main");
             currentStage.show();
+            StartupTimer.mark("main window shown");
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -102,15 +167,39 @@ public class MyFunctions {
 
         if (controller != null && controller.isSubmitted()) {
             // Refresh financial information after adding transaction
-            double newDailyIncome = InformationsControl.calculateDailyIncome(accountId, 1);
-            double newDailyExpense = InformationsControl.calculateDailyExpense(accountId, 1);
-            double newBalance = InformationsControl.calculateDailyBalance(accountId, 1);
-
-            // Update the TextFields with the new values
-            todayIncomeTextField.setText(String.valueOf(newDailyIncome));
-            todayExpenseTextField.setText(String.valueOf(newDailyExpense));
-            todayBalanceTextField.setText(String.valueOf(newBalance));
-            averageDailyIncomeTextField.setText(String.valueOf(newDailyIncome));
+            InformationsControl.calculateSummaryAsync(accountId, 1)
+                    .thenAcceptAsync(this::showSummary, Platform::runLater);
+            if (transactionPager != null) {
+                transactionPager.refresh();
+            }
         }
     }
+
+    // Method to display the financial summary in the TextFields
+    private void showSummary(Summary summary) {
+        balanceTextField.setText(String.valueOf(summary.dailyBalance()));
+        todayBalanceTextField.setText(String.valueOf(summary.dailyBalance()));
+        todayIncomeTextField.setText(String.valueOf(summary.dailyIncome()));
+        todayExpenseTextField.setText(String.valueOf(summary.dailyExpense()));
+        averageDailyIncomeTextField.setText(String.valueOf(summary.dailyIncome()));
+        averageMonthlyIncomeTextField.setText(String.valueOf(summary.monthlyIncome()));
+        averageAnnualIncomeTextField.setText(String.valueOf(summary.yearlyIncome()));
+    }
+
+    // Method to bind the transactions table to a lazily loaded pager, the rows
+    // of a page not loaded yet are empty (null) until it arrives
+    private void showTransactions(TransactionPager pager) {
+        transactionPager = pager;
+        costColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(
+                cell.getValue() == null ? null : cell.getValue().amount()));
+        typeColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(
+                cell.getValue() == null ? null : cell.getValue().type().getDbValue()));
+        commentColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(
+                cell.getValue() == null ? null : cell.getValue().comment()));
+        dateColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(
+                cell.getValue() == null || cell.getValue().date() == null ? null
+                        : DATE_FORMAT.format(cell.getValue().date())));
+        balanceColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(pager.getBalance(cell.getValue())));
+        transactionsTable.setItems(pager);
+    }
 }
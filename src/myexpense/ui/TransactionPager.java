@@ -0,0 +1,209 @@
+/**
+ * @author rahim
+ */
+package myexpense.ui;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import myexpense.database.DBExecutor;
+import myexpense.database.DBQueries;
+import myexpense.models.Money;
+import myexpense.models.Transaction;
+import myexpense.utils.LoggerControl;
+
+/**
+ * The `TransactionPager` class is a lazily loaded list of a profile's
+ * transactions, newest first, used as the items of the transactions table.
+ *
+ * The TableView only asks for the rows it displays, so rows are fetched page
+ * by page with keyset pagination as the user scrolls. Only a bounded window of
+ * pages is kept in memory and the next page is prefetched, so memory stays the
+ * same whatever the size of the history.
+ *
+ * Pages are read on the database executor. A row whose page is not loaded yet
+ * is `null` (an empty table row) until the page arrives and the rows are
+ * updated. Apart from `loadAsync`, the pager is only used on the FX thread.
+ *
+ * Each page is read with the running balance of its rows, see
+ * `DBQueries.getRunningBalances`.
+ */
+public class TransactionPager extends ObservableListBase<Transaction> {
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 10;
+    private static final int MAX_KNOWN_BOUNDARIES = 1024;
+
+    private final int accountId;
+    private final int profileId;
+    private int size;
+
+    // Incremented on refresh, so pages read before it are dropped
+    private int generation = 0;
+    private final Set<Integer> pending = new HashSet<>();
+
+    private record Page(List<Transaction> rows, long[] balances) {
+    }
+
+    // Loaded pages, in access order so the least recently used one is evicted
+    private final Map<Integer, List<Transaction>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Transaction>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    // Running balance of the rows of the loaded pages, by transaction id
+    private final Map<Integer, Long> balances = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+            return size() > (MAX_CACHED_PAGES + 1) * PAGE_SIZE;
+        }
+    };
+
+    // Last row of each page seen so far, the keyset for the following page
+    private final Map<Integer, Transaction> boundaries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Transaction> eldest) {
+            return size() > MAX_KNOWN_BOUNDARIES;
+        }
+    };
+
+    private TransactionPager(int accountId, int profileId, int size) {
+        this.accountId = accountId;
+        this.profileId = profileId;
+        this.size = size;
+    }
+
+    /**
+     * The `loadAsync` method counts the transactions of a profile and reads the
+     * first page in the background.
+     *
+     * @param accountId the target account id
+     * @param profileId the target profile id
+     * @return a future completed with the pager, ready to be shown
+     */
+    public static CompletableFuture<TransactionPager> loadAsync(int accountId, int profileId) {
+        return DBExecutor.read(() -> {
+            TransactionPager pager = new TransactionPager(accountId, profileId,
+                    DBQueries.countTransactions(accountId, profileId));
+            pager.store(0, readPage(accountId, profileId, 0, null));
+            return pager;
+        });
+    }
+
+    @Override
+    public Transaction get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        int pageIndex = index / PAGE_SIZE;
+        List<Transaction> page = pages.get(pageIndex);
+        if (page == null) {
+            request(pageIndex);
+            return null;
+        }
+        request(pageIndex + 1); // Prefetch
+
+        int offset = index % PAGE_SIZE;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The `getBalance` function returns the balance of the profile after a
+     * transaction of a loaded page.
+     *
+     * @param transaction a row of the table, may be `null`
+     * @return the running balance, or `null` if it is not loaded
+     */
+    public Money getBalance(Transaction transaction) {
+        Long balance = transaction == null ? null : balances.get(transaction.id());
+        return balance == null ? null : Money.ofCents(balance);
+    }
+
+    /**
+     * The `refresh` method reloads the row count in the background and drops
+     * the loaded pages, e.g. after a transaction was added.
+     */
+    public void refresh() {
+        DBExecutor.read(() -> DBQueries.countTransactions(accountId, profileId))
+                .thenAcceptAsync(newSize -> {
+                    int oldSize = size;
+                    generation++;
+                    pages.clear();
+                    balances.clear();
+                    boundaries.clear();
+                    pending.clear();
+                    size = newSize;
+
+                    beginChange();
+                    nextRemove(0, Collections.nCopies(oldSize, (Transaction) null));
+                    nextAdd(0, size);
+                    endChange();
+                }, Platform::runLater);
+    }
+
+    // Reads a page in the background unless it is loaded or being read
+    private void request(int pageIndex) {
+        if (pageIndex * PAGE_SIZE >= size || pages.containsKey(pageIndex) || !pending.add(pageIndex)) {
+            return;
+        }
+
+        int requestGeneration = generation;
+        Transaction previousLast = pageIndex == 0 ? null : boundaries.get(pageIndex - 1);
+        DBExecutor.read(() -> readPage(accountId, profileId, pageIndex, previousLast))
+                .thenAcceptAsync(page -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    pending.remove(pageIndex);
+                    store(pageIndex, page);
+
+                    // Redraw the rows of the page
+                    int from = pageIndex * PAGE_SIZE;
+                    int to = Math.min(from + PAGE_SIZE, size);
+                    beginChange();
+                    for (int i = from; i < to; i++) {
+                        nextUpdate(i);
+                    }
+                    endChange();
+                }, Platform::runLater);
+    }
+
+    private void store(int pageIndex, Page page) {
+        List<Transaction> rows = page.rows();
+        pages.put(pageIndex, rows);
+        for (int i = 0; i < rows.size(); i++) {
+            balances.put(rows.get(i).id(), page.balances()[i]);
+        }
+        if (!rows.isEmpty()) {
+            boundaries.put(pageIndex, rows.get(rows.size() - 1));
+        }
+    }
+
+    private static Page readPage(int accountId, int profileId, int pageIndex, Transaction previousLast) {
+        List<Transaction> rows;
+        if (pageIndex == 0 || previousLast != null) {
+            rows = DBQueries.getTransactionsPage(accountId, profileId, previousLast, PAGE_SIZE);
+        } else {
+            // Jumped past the known pages (e.g. scrollbar drag), seek once by
+            // offset
+            LoggerControl.logMessage(() -> "Seeking transactions page " + pageIndex + " by offset", Level.FINEST);
+            rows = DBQueries.getTransactionsPageAt(accountId, profileId, pageIndex * PAGE_SIZE, PAGE_SIZE);
+        }
+        return new Page(rows, DBQueries.getRunningBalances(accountId, profileId, rows));
+    }
+}
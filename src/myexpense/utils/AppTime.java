@@ -0,0 +1,81 @@
+/**
+ * @author rahim
+ */
+package myexpense.utils;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.util.logging.Level;
+
+/**
+ * The `AppTime` class holds the calendar settings of the application.
+ * Transaction dates are stored as wall-clock times of one time zone, and
+ * "today", "this month" and so on are computed in the same zone, so they
+ * match the stored days.
+ *
+ * The zone is read from the `myexpense.timezone` system property (e.g.
+ * `Europe/Paris`), the system zone by default. The first month of the fiscal
+ * year is read from `myexpense.fiscalYearStart` (1 to 12, 1 by default).
+ */
+public class AppTime {
+    public static final ZoneId ZONE = zone(System.getProperty("myexpense.timezone"));
+    public static final Month FISCAL_YEAR_START = Month.of(checkMonth(
+            Integer.getInteger("myexpense.fiscalYearStart", 1)));
+
+    private AppTime() {
+    }
+
+    /**
+     * The `today` function returns the current day in the application zone.
+     *
+     * @return the current day
+     */
+    public static LocalDate today() {
+        return LocalDate.now(ZONE);
+    }
+
+    /**
+     * The `now` function returns the current wall-clock time in the
+     * application zone, the way transaction dates are stored.
+     *
+     * @return the current time
+     */
+    public static LocalDateTime now() {
+        return LocalDateTime.now(ZONE);
+    }
+
+    /**
+     * The `fiscalYearStart` function returns the first day of the fiscal year
+     * containing a day.
+     *
+     * @param day the day
+     * @return the first day of its fiscal year
+     */
+    public static LocalDate fiscalYearStart(LocalDate day) {
+        LocalDate start = day.withMonth(FISCAL_YEAR_START.getValue()).withDayOfMonth(1);
+        return start.isAfter(day) ? start.minusYears(1) : start;
+    }
+
+    private static ZoneId zone(String id) {
+        if (id == null || id.isBlank()) {
+            return ZoneId.systemDefault();
+        }
+        try {
+            return ZoneId.of(id);
+        } catch (DateTimeException e) {
+            LoggerControl.logMessage("Unknown time zone " + id + ", using the system zone.", Level.WARNING);
+            return ZoneId.systemDefault();
+        }
+    }
+
+    private static int checkMonth(int month) {
+        if (month < 1 || month > 12) {
+            LoggerControl.logMessage("Invalid fiscal year start " + month + ", using January.", Level.WARNING);
+            return 1;
+        }
+        return month;
+    }
+}
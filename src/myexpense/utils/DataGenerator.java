@@ -0,0 +1,365 @@
+/**
+ * @author rahim
+ */
+package myexpense.utils;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+
+import myexpense.database.DBConnection;
+import myexpense.database.DBQueries;
+import myexpense.logic.TransactionControl;
+import myexpense.models.BatchResult;
+import myexpense.models.Transaction;
+import myexpense.utils.ExceptionControl.DuplicateException;
+
+/**
+ * The `DataGenerator` class fills a database with synthetic accounts, profiles
+ * and transactions, for load and scale testing. Usage:
+ *
+ * <pre>
+ * java -cp MyExpense.jar:lib/* myexpense.utils.DataGenerator \
+ *     --db load.db --accounts 10 --profiles 3 --transactions 100000 \
+ *     --days 730 --seed 42 --end 2025-12-31
+ * </pre>
+ *
+ * Each profile gets a monthly salary and rent, monthly bills, and everyday
+ * expenses whose amounts, days of week and hours follow their category,
+ * which is stored with them. Rows go through the batch insert path. The same
+ * options, including `--end` (today by default), always produce the same
+ * data.
+ *
+ * Every generated account has the password `password`.
+ */
+public class DataGenerator {
+    private static final String PASSWORD = "password";
+    private static final int BATCH_SIZE = 50_000;
+    private static final int CHUNK_SIZE = 1_000;
+    private static final int MONTHLY_ITEMS = 4;
+
+    private static final String USAGE = "Usage: DataGenerator [--db file] [--accounts N] [--profiles M] "
+            + "[--transactions K] [--days D] [--seed S] [--end yyyy-MM-dd]";
+
+    private static final String[] PROFILE_NAMES = { "Personal", "Household", "Business", "Travel", "Savings" };
+    private static final String[] MONTHLY_CATEGORIES = { "Salary", "Housing", "Bills" };
+
+    /**
+     * The `Category` enum lists the generated kinds of transactions, with their
+     * weight among the everyday transactions, median amount in cents, spread and
+     * usual merchants.
+     */
+    private enum Category {
+        GROCERIES(Transaction.Type.EXPENSE, 30, 4_500, 0.6, false, "Carrefour", "Lidl", "Local market", "Bakery"),
+        RESTAURANT(Transaction.Type.EXPENSE, 14, 2_500, 0.7, true, "Pizzeria", "Cafe", "Sushi bar", "Fast food"),
+        TRANSPORT(Transaction.Type.EXPENSE, 16, 800, 0.8, false, "Bus ticket", "Taxi", "Fuel", "Parking"),
+        SHOPPING(Transaction.Type.EXPENSE, 10, 6_000, 1.0, true, "Clothes", "Electronics", "Books", "Home"),
+        ENTERTAINMENT(Transaction.Type.EXPENSE, 8, 3_000, 0.8, true, "Cinema", "Concert", "Streaming", "Games"),
+        HEALTH(Transaction.Type.EXPENSE, 5, 4_000, 0.9, false, "Pharmacy", "Doctor", "Dentist"),
+        GIFTS(Transaction.Type.EXPENSE, 3, 5_000, 0.9, true, "Birthday gift", "Wedding gift", "Donation"),
+        FREELANCE(Transaction.Type.INCOME, 3, 40_000, 0.7, false, "Freelance invoice", "Consulting"),
+        REFUND(Transaction.Type.INCOME, 3, 3_000, 0.9, false, "Refund", "Cashback"),
+        SALE(Transaction.Type.INCOME, 2, 8_000, 1.0, true, "Sold item", "Second-hand sale");
+
+        private static final int TOTAL_WEIGHT;
+
+        static {
+            int total = 0;
+            for (Category category : values()) {
+                total += category.weight;
+            }
+            TOTAL_WEIGHT = total;
+        }
+
+        private final Transaction.Type type;
+        private final int weight;
+        private final double medianCents;
+        private final double spread;
+        private final boolean weekend;
+        private final String[] merchants;
+
+        Category(Transaction.Type type, int weight, double medianCents, double spread, boolean weekend,
+                String... merchants) {
+            this.type = type;
+            this.weight = weight;
+            this.medianCents = medianCents;
+            this.spread = spread;
+            this.weekend = weekend;
+            this.merchants = merchants;
+        }
+
+        static Category pick(SplittableRandom random) {
+            int value = random.nextInt(TOTAL_WEIGHT);
+            for (Category category : values()) {
+                value -= category.weight;
+                if (value < 0) {
+                    return category;
+                }
+            }
+            return GROCERIES;
+        }
+
+        String label() {
+            return name().charAt(0) + name().substring(1).toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * The `Options` record holds the command-line options.
+     */
+    private record Options(String db, int accounts, int profiles, long transactions, int days, long seed,
+            LocalDate end) {
+
+        static Options parse(String[] args) {
+            String db = "MyExpenseDB.db";
+            int accounts = 1;
+            int profiles = 1;
+            long transactions = 10_000;
+            int days = 730;
+            long seed = 42;
+            LocalDate end = AppTime.today();
+
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (name.equals("--help") || name.equals("-h")) {
+                    return null;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--db" -> db = value;
+                    case "--accounts" -> accounts = Integer.parseInt(value);
+                    case "--profiles" -> profiles = Integer.parseInt(value);
+                    case "--transactions" -> transactions = Long.parseLong(value);
+                    case "--days" -> days = Integer.parseInt(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--end" -> end = LocalDate.parse(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + name);
+                }
+            }
+            if (accounts < 1 || profiles < 1 || transactions < 0 || days < 1) {
+                throw new IllegalArgumentException("Counts must be positive");
+            }
+            return new Options(db, accounts, profiles, transactions, days, seed, end);
+        }
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options == null) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        // Must be set before DBConnection is loaded
+        System.setProperty("myexpense.db.url", "jdbc:sqlite:" + options.db());
+        LoggerControl.getLogger().setLevel(Level.WARNING);
+
+        try {
+            generate(options);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    private static void generate(Options options) {
+        long start = System.nanoTime();
+        DBQueries.createTables();
+        String passwordHash = PasswordHasher.hashPassword(PASSWORD);
+        long inserted = 0;
+
+        Map<String, Integer> categoryIds = new HashMap<>();
+        for (Category category : Category.values()) {
+            categoryIds.put(category.label(), DBQueries.getOrCreateCategory(category.label()));
+        }
+        for (String name : MONTHLY_CATEGORIES) {
+            categoryIds.put(name, DBQueries.getOrCreateCategory(name));
+        }
+
+        for (int a = 0; a < options.accounts(); a++) {
+            String username = String.format(Locale.ROOT, "user%04d-%d", a + 1, options.seed());
+            int accountId = DBQueries.insertAccount(username, passwordHash);
+            if (accountId == -1) {
+                throw new IllegalStateException("Cannot create account " + username + ", is it already there?");
+            }
+
+            for (int p = 0; p < options.profiles(); p++) {
+                int profileId;
+                try {
+                    profileId = DBQueries.insertProfile(accountId, PROFILE_NAMES[p % PROFILE_NAMES.length]
+                            + (p < PROFILE_NAMES.length ? "" : " " + (p / PROFILE_NAMES.length + 1)));
+                } catch (DuplicateException e) {
+                    throw new IllegalStateException("Cannot create profile: " + e.getMessage(), e);
+                }
+
+                // One stream per profile, so a profile does not depend on the
+                // size of the previous ones
+                SplittableRandom random = new SplittableRandom(options.seed() * 1_000_003L + a * 1_009L + p);
+                ProfileLedger ledger = new ProfileLedger(profileId, options, random, categoryIds);
+                while (ledger.hasMore()) {
+                    BatchResult result = TransactionControl.insertAll(ledger.nextBatch(BATCH_SIZE), CHUNK_SIZE);
+                    if (result.hasFailures()) {
+                        throw new IllegalStateException("Insert failed: " + result.failures().get(0).reason());
+                    }
+                    inserted += result.insertedCount();
+                }
+                System.out.printf(Locale.ROOT, "Account %d/%d, profile %d/%d: %d transactions so far%n", a + 1,
+                        options.accounts(), p + 1, options.profiles(), inserted);
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf(Locale.ROOT, "Generated %d accounts, %d profiles and %d transactions in %.1f s (%.0f rows/s)%n",
+                options.accounts(), options.accounts() * options.profiles(), inserted, seconds, inserted / seconds);
+    }
+
+    /**
+     * The `ProfileLedger` class generates the transactions of one profile. The
+     * monthly items (salary, rent, bills) of every month of the period come
+     * first, the remaining rows are everyday transactions on random days. Very
+     * small profiles only get everyday transactions.
+     */
+    private static class ProfileLedger {
+        private final int profileId;
+        private final SplittableRandom random;
+        private final Map<String, Integer> categoryIds;
+        private final LocalDate firstDay;
+        private final int days;
+        private final long total;
+        private final long salaryCents;
+        private final long rentCents;
+        private final int payDay;
+        private long generated = 0;
+        private LocalDate nextMonth;
+        private Transaction[] monthly = new Transaction[0];
+        private int monthlyIndex = 0;
+
+        ProfileLedger(int profileId, Options options, SplittableRandom random, Map<String, Integer> categoryIds) {
+            this.profileId = profileId;
+            this.random = random;
+            this.categoryIds = categoryIds;
+            this.days = options.days();
+            this.firstDay = options.end().minusDays(days - 1);
+            this.total = options.transactions();
+            this.salaryCents = 150_000 + random.nextLong(450_000);
+            this.rentCents = salaryCents * (25 + random.nextInt(15)) / 100 / 100 * 100;
+            this.payDay = random.nextBoolean() ? 1 : 25 + random.nextInt(4);
+            this.nextMonth = firstDay.withDayOfMonth(1);
+
+            long months = firstDay.withDayOfMonth(1).until(options.end()).toTotalMonths() + 1;
+            if (total < months * MONTHLY_ITEMS * 2) {
+                nextMonth = null;
+            }
+        }
+
+        boolean hasMore() {
+            return generated < total;
+        }
+
+        Iterable<Transaction> nextBatch(int size) {
+            long batchEnd = Math.min(total, generated + size);
+            return () -> new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return generated < batchEnd;
+                }
+
+                @Override
+                public Transaction next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    generated++;
+                    if (monthlyIndex == monthly.length && nextMonth != null) {
+                        monthly = monthlyItems(nextMonth);
+                        monthlyIndex = 0;
+                        nextMonth = nextMonth.plusMonths(1);
+                        if (nextMonth.isAfter(lastDay())) {
+                            nextMonth = null;
+                        }
+                    }
+                    if (monthlyIndex < monthly.length) {
+                        return monthly[monthlyIndex++];
+                    }
+                    return everyday();
+                }
+            };
+        }
+
+        private LocalDate lastDay() {
+            return firstDay.plusDays(days - 1);
+        }
+
+        private Transaction[] monthlyItems(LocalDate month) {
+            Transaction[] items = {
+                    transaction(Transaction.Type.INCOME, salaryCents, "Salary", "Salary",
+                            clamp(month.withDayOfMonth(Math.min(payDay, month.lengthOfMonth()))).atTime(9, 0)),
+                    transaction(Transaction.Type.EXPENSE, rentCents, "Rent", "Housing",
+                            clamp(month.withDayOfMonth(1)).atTime(8, 0)),
+                    transaction(Transaction.Type.EXPENSE, lognormal(9_000, 0.25), "Electricity", "Bills",
+                            clamp(month.withDayOfMonth(10)).atTime(randomHour(), random.nextInt(60))),
+                    transaction(Transaction.Type.EXPENSE, 2_999, "Phone and internet", "Bills",
+                            clamp(month.withDayOfMonth(15)).atTime(7, 30)),
+            };
+            return items;
+        }
+
+        private Transaction everyday() {
+            Category category = Category.pick(random);
+            LocalDate day = firstDay.plusDays(random.nextInt(days));
+            if (category.weekend && day.getDayOfWeek().getValue() < DayOfWeek.SATURDAY.getValue()
+                    && random.nextInt(3) > 0) {
+                // Leisure goes to the nearest weekend two times out of three
+                day = day.plusDays(DayOfWeek.SATURDAY.getValue() - day.getDayOfWeek().getValue()
+                        + random.nextInt(2));
+            }
+            String merchant = category.merchants[random.nextInt(category.merchants.length)];
+            return transaction(category.type, lognormal(category.medianCents, category.spread), merchant,
+                    category.label(), clamp(day).atTime(randomHour(), random.nextInt(60), random.nextInt(60)));
+        }
+
+        private Transaction transaction(Transaction.Type type, long cents, String comment, String category,
+                LocalDateTime date) {
+            Integer categoryId = categoryIds.get(category);
+            return new Transaction(0, profileId, type, Math.max(cents, 1), comment, date,
+                    categoryId == null || categoryId == -1 ? null : categoryId);
+        }
+
+        // Days pushed past the period by the weekend shift come back to its end
+        private LocalDate clamp(LocalDate day) {
+            if (day.isAfter(lastDay())) {
+                return lastDay();
+            }
+            return day.isBefore(firstDay) ? firstDay : day;
+        }
+
+        // Most purchases happen between 8:00 and 22:00, peaking at noon and 18:00
+        private int randomHour() {
+            int hour = random.nextBoolean() ? 12 : 18;
+            hour += (int) Math.round(random.nextGaussian() * 2.5);
+            return Math.max(7, Math.min(22, hour));
+        }
+
+        private long lognormal(double medianCents, double spread) {
+            return Math.round(medianCents * Math.exp(random.nextGaussian() * spread));
+        }
+    }
+}
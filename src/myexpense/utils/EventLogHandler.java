@@ -0,0 +1,213 @@
+/**
+ * @author rahim
+ */
+package myexpense.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The `EventLogHandler` class writes log records as JSON Lines, one object per
+ * line with the fields `t` (epoch milliseconds), `level`, `thread`, `logger`,
+ * `msg` and, for exceptions, `thrown`:
+ *
+ * <pre>
+ * {"t":1760758467550,"level":"WARNING","thread":1,"logger":"myexpense.utils.LoggerControl","msg":"..."}
+ * </pre>
+ *
+ * The active segment is `events.jsonl`. When it reaches `maxBytes` or
+ * `maxAgeMillis`, it is gzipped to `events-<first>_<last>.jsonl.gz`, the
+ * times being the UTC range of its records, and the oldest segments beyond
+ * `maxSegments` are deleted. The names let `EventLogReader` skip segments
+ * outside a time range without opening them.
+ */
+public class EventLogHandler extends Handler {
+    static final String ACTIVE_SEGMENT = "events.jsonl";
+    static final String SEGMENT_PREFIX = "events-";
+    static final String SEGMENT_SUFFIX = ".jsonl.gz";
+    static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("uuuuMMdd-HHmmssSSS")
+            .withZone(ZoneOffset.UTC);
+    // Wait before trying again a rotation that failed, e.g. on a full disk
+    private static final long ROTATE_RETRY_MILLIS = 60_000;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final int maxSegments;
+
+    private final StringBuilder line = new StringBuilder(256);
+    private OutputStream out;
+    private long size;
+    private long firstMillis;
+    private long lastMillis;
+    private long retryMillis;
+    private boolean closed;
+
+    /**
+     * The `EventLogHandler` constructor opens the active segment of a
+     * directory, appending to it if it exists.
+     *
+     * @param dir          the log directory
+     * @param maxBytes     the size at which the active segment is rotated
+     * @param maxAgeMillis the age of its first record at which it is rotated
+     * @param maxSegments  the number of rotated segments kept
+     * @throws IOException if the segment cannot be opened
+     */
+    public EventLogHandler(Path dir, long maxBytes, long maxAgeMillis, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(dir);
+        open();
+    }
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        long millis = record.getMillis();
+        try {
+            if (out == null) {
+                open(); // Not reopened after a failed rotation
+            }
+            if (size > 0 && millis >= retryMillis && (size >= maxBytes || millis - firstMillis >= maxAgeMillis)) {
+                try {
+                    rotate();
+                } catch (IOException e) {
+                    // The record still goes to the active segment
+                    reportError("Error rotating event log", e, ErrorManager.GENERIC_FAILURE);
+                }
+            }
+            byte[] bytes = format(record).getBytes(StandardCharsets.UTF_8);
+            out.write(bytes);
+            if (size == 0) {
+                firstMillis = millis;
+            }
+            size += bytes.length;
+            lastMillis = Math.max(lastMillis, millis);
+        } catch (IOException e) {
+            reportError("Error writing event log", e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                reportError("Error flushing event log", e, ErrorManager.FLUSH_FAILURE);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                reportError("Error closing event log", e, ErrorManager.CLOSE_FAILURE);
+            }
+            out = null;
+        }
+    }
+
+    // Method to build the JSON line of a record, in a reused buffer
+    private String format(LogRecord record) {
+        line.setLength(0);
+        line.append("{\"t\":").append(record.getMillis());
+        line.append(",\"level\":\"").append(record.getLevel().getName());
+        line.append("\",\"thread\":").append(record.getLongThreadID());
+        line.append(",\"logger\":");
+        Json.appendString(line, record.getLoggerName());
+        line.append(",\"msg\":");
+        Json.appendString(line, record.getMessage());
+        if (record.getThrown() != null) {
+            line.append(",\"thrown\":");
+            Json.appendString(line, record.getThrown().toString());
+        }
+        return line.append("}\n").toString();
+    }
+
+    private void open() throws IOException {
+        Path active = dir.resolve(ACTIVE_SEGMENT);
+        size = Files.exists(active) ? Files.size(active) : 0;
+        if (size > 0) {
+            // Continue the time range of the segment left by the last run
+            long[] range = EventLogReader.timeRange(active);
+            firstMillis = range[0];
+            lastMillis = range[1];
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(active, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND), 64 * 1024);
+    }
+
+    // Method to compress the active segment and start a new one. If it fails
+    // the active segment is reopened and kept growing until the next retry,
+    // so no record is lost.
+    private void rotate() throws IOException {
+        out.close();
+        out = null;
+
+        Path active = dir.resolve(ACTIVE_SEGMENT);
+        String range = SEGMENT_TIME.format(Instant.ofEpochMilli(firstMillis)) + "_"
+                + SEGMENT_TIME.format(Instant.ofEpochMilli(lastMillis));
+        Path segment = dir.resolve(SEGMENT_PREFIX + range + SEGMENT_SUFFIX);
+        for (int i = 1; Files.exists(segment); i++) {
+            segment = dir.resolve(SEGMENT_PREFIX + range + "-" + i + SEGMENT_SUFFIX);
+        }
+
+        Path partial = dir.resolve(segment.getFileName() + ".tmp");
+        try {
+            try (InputStream in = Files.newInputStream(active);
+                    OutputStream gz = new GZIPOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+                in.transferTo(gz);
+            }
+            Files.move(partial, segment, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(active);
+            firstMillis = 0;
+            lastMillis = 0;
+            pruneSegments();
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            retryMillis = lastMillis + ROTATE_RETRY_MILLIS;
+            throw e;
+        } finally {
+            open();
+        }
+    }
+
+    private void pruneSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        // The names start with the UTC time of their first record
+        segments.sort(null);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/**
+ * @author rahim
+ */
+package myexpense.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The `EventLogReader` class scans the event log written by
+ * `EventLogHandler`. Segments whose time range, taken from their name, does
+ * not overlap the query are skipped without being opened. The others are
+ * memory-mapped, gzipped ones being inflated straight from the mapping, and
+ * lines outside the time range are skipped after reading their timestamp
+ * only. Usage:
+ *
+ * <pre>
+ * java -cp MyExpense.jar:lib/* myexpense.utils.EventLogReader \
+ *     --dir logs --from 2025-01-01 --to 2025-01-31T12:00 --level WARNING --grep transaction
+ * </pre>
+ */
+public class EventLogReader {
+    private static final String USAGE = "Usage: EventLogReader [--dir logs] [--from date[Thh:mm]] "
+            + "[--to date[Thh:mm]] [--level LEVEL] [--grep text]";
+
+    private static final byte[] TIME_PREFIX = "{\"t\":".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The `Event` record is one line of the event log.
+     */
+    public record Event(long millis, Level level, long thread, String logger, String message, String thrown) {
+    }
+
+    /**
+     * The `scan` function hands to a consumer the events of a directory within
+     * a time range, at or above a level and containing a text, segment by
+     * segment from the oldest.
+     *
+     * @param dir        the log directory
+     * @param fromMillis the earliest event time, inclusive
+     * @param toMillis   the latest event time, inclusive
+     * @param minLevel   the lowest level returned, `null` for all
+     * @param contains   a text the message must contain, `null` for any
+     * @param consumer   receives the matching events
+     * @return the number of matching events
+     * @throws IOException if a segment cannot be read
+     */
+    public static long scan(Path dir, long fromMillis, long toMillis, Level minLevel, String contains,
+            Consumer<Event> consumer) throws IOException {
+        long count = 0;
+        for (Path segment : segments(dir, fromMillis, toMillis)) {
+            ByteBuffer buffer = read(segment);
+            int lineStart = 0;
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) != '\n') {
+                    continue;
+                }
+                long millis = lineTime(buffer, lineStart, i);
+                if (millis >= fromMillis && millis <= toMillis) {
+                    Event event = parse(buffer, lineStart, i);
+                    if (event != null && matches(event, minLevel, contains)) {
+                        consumer.accept(event);
+                        count++;
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        return count;
+    }
+
+    private static boolean matches(Event event, Level minLevel, String contains) {
+        if (minLevel != null && event.level().intValue() < minLevel.intValue()) {
+            return false;
+        }
+        return contains == null || (event.message() != null && event.message().contains(contains));
+    }
+
+    // Method to list the segments overlapping a time range, oldest first
+    private static List<Path> segments(Path dir, long fromMillis, long toMillis) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir,
+                EventLogHandler.SEGMENT_PREFIX + "*" + EventLogHandler.SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                long[] range = nameRange(segment);
+                if (range == null || (range[1] >= fromMillis && range[0] <= toMillis)) {
+                    segments.add(segment);
+                }
+            }
+        }
+        segments.sort(null);
+        Path active = dir.resolve(EventLogHandler.ACTIVE_SEGMENT);
+        if (Files.exists(active)) {
+            segments.add(active);
+        }
+        return segments;
+    }
+
+    // events-<first>_<last>[-n].jsonl.gz, null if the name is not understood
+    private static long[] nameRange(Path segment) {
+        String name = segment.getFileName().toString();
+        String range = name.substring(EventLogHandler.SEGMENT_PREFIX.length(),
+                name.length() - EventLogHandler.SEGMENT_SUFFIX.length());
+        int separator = range.indexOf('_');
+        int width = "uuuuMMdd-HHmmssSSS".length();
+        if (separator != width || range.length() < 2 * width + 1) {
+            return null;
+        }
+        try {
+            long first = Instant.from(EventLogHandler.SEGMENT_TIME.parse(range.substring(0, width))).toEpochMilli();
+            long last = Instant.from(EventLogHandler.SEGMENT_TIME.parse(range.substring(width + 1, 2 * width + 1)))
+                    .toEpochMilli();
+            return new long[] { first, last };
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Method to map a segment, inflating it if it is gzipped
+    private static ByteBuffer read(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return ByteBuffer.allocate(0);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segment too large: " + segment);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (!segment.getFileName().toString().endsWith(EventLogHandler.SEGMENT_SUFFIX)) {
+                return mapped;
+            }
+            try (InputStream in = new GZIPInputStream(new BufferInputStream(mapped), 64 * 1024)) {
+                return ByteBuffer.wrap(in.readAllBytes());
+            }
+        }
+    }
+
+    // The "t" field is first on every line, read without decoding the line
+    private static long lineTime(ByteBuffer buffer, int start, int end) {
+        if (end - start <= TIME_PREFIX.length) {
+            return Long.MIN_VALUE;
+        }
+        for (int i = 0; i < TIME_PREFIX.length; i++) {
+            if (buffer.get(start + i) != TIME_PREFIX[i]) {
+                return Long.MIN_VALUE;
+            }
+        }
+        long millis = 0;
+        for (int i = start + TIME_PREFIX.length; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            millis = millis * 10 + (b - '0');
+        }
+        return millis;
+    }
+
+    /**
+     * The `timeRange` function returns the earliest and latest event times of
+     * an uncompressed segment.
+     *
+     * @param segment the segment
+     * @return `{ first, last }`, `{ 0, 0 }` if it has no event
+     * @throws IOException if the segment cannot be read
+     */
+    static long[] timeRange(Path segment) throws IOException {
+        ByteBuffer buffer = read(segment);
+        long first = Long.MAX_VALUE;
+        long last = 0;
+        int lineStart = 0;
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                long millis = lineTime(buffer, lineStart, i);
+                if (millis != Long.MIN_VALUE) {
+                    first = Math.min(first, millis);
+                    last = Math.max(last, millis);
+                }
+                lineStart = i + 1;
+            }
+        }
+        return first == Long.MAX_VALUE ? new long[] { 0, 0 } : new long[] { first, last };
+    }
+
+    // Method to parse one line, null if it is not an event
+    private static Event parse(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        String json = new String(bytes, StandardCharsets.UTF_8);
+
+        long millis = 0;
+        long thread = 0;
+        Level level = null;
+        String logger = null;
+        String message = null;
+        String thrown = null;
+        try {
+            int[] pos = { 1 };
+            while (pos[0] < json.length() && json.charAt(pos[0]) == '"') {
+                String key = readString(json, pos);
+                pos[0]++; // ':'
+                Object value = json.charAt(pos[0]) == '"' ? readString(json, pos) : readLiteral(json, pos);
+                switch (key) {
+                    case "t" -> millis = Long.parseLong((String) value);
+                    case "thread" -> thread = Long.parseLong((String) value);
+                    case "level" -> level = Level.parse((String) value);
+                    case "logger" -> logger = (String) value;
+                    case "msg" -> message = (String) value;
+                    case "thrown" -> thrown = (String) value;
+                    default -> {
+                    }
+                }
+                if (pos[0] < json.length() && json.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                }
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return level == null ? null : new Event(millis, level, thread, logger, message, thrown);
+    }
+
+    private static String readString(String json, int[] pos) {
+        StringBuilder sb = new StringBuilder();
+        int i = pos[0] + 1;
+        while (json.charAt(i) != '"') {
+            char c = json.charAt(i++);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = json.charAt(i++);
+            switch (escaped) {
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    sb.append((char) Integer.parseInt(json.substring(i, i + 4), 16));
+                    i += 4;
+                }
+                default -> sb.append(escaped);
+            }
+        }
+        pos[0] = i + 1;
+        return sb.toString();
+    }
+
+    // Numbers and null, returned as text (null for null)
+    private static String readLiteral(String json, int[] pos) {
+        int i = pos[0];
+        while (i < json.length() && json.charAt(i) != ',' && json.charAt(i) != '}') {
+            i++;
+        }
+        String literal = json.substring(pos[0], i);
+        pos[0] = i;
+        return literal.equals("null") ? null : literal;
+    }
+
+    /**
+     * The `BufferInputStream` class reads a byte buffer as an input stream.
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+
+    public static void main(String[] args) {
+        Path dir = Paths.get("logs");
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        Level level = null;
+        String grep = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (name.equals("--help") || name.equals("-h")) {
+                    System.out.println(USAGE);
+                    return;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--dir" -> dir = Paths.get(value);
+                    case "--from" -> from = parseTime(value, false);
+                    case "--to" -> to = parseTime(value, true);
+                    case "--level" -> level = Level.parse(value);
+                    case "--grep" -> grep = value;
+                    default -> throw new IllegalArgumentException("Unknown option: " + name);
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        long start = System.nanoTime();
+        try {
+            long count = scan(dir, from, to, level, grep, event -> System.out.println(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(event.millis()), zone) + " "
+                            + event.level().getName() + " [" + event.thread() + "] " + event.message()
+                            + (event.thrown() == null ? "" : " " + event.thrown())));
+            System.err.println(count + " events in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.err.println("Error reading event log: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // A date alone means its start, or its end for the upper bound
+    private static long parseTime(String value, boolean end) {
+        ZoneId zone = ZoneId.systemDefault();
+        if (value.length() == 10) {
+            LocalDate date = LocalDate.parse(value);
+            Instant instant = (end ? date.plusDays(1) : date).atStartOfDay(zone).toInstant();
+            return end ? instant.toEpochMilli() - 1 : instant.toEpochMilli();
+        }
+        return LocalDateTime.parse(value).atZone(zone).toInstant().toEpochMilli();
+    }
+}
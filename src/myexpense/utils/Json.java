@@ -0,0 +1,47 @@
+/**
+ * @author rahim
+ */
+package myexpense.utils;
+
+/**
+ * The `Json` class holds the JSON helpers shared by the JSON Lines writers,
+ * the transaction export and the event log.
+ */
+public class Json {
+
+    private Json() {
+    }
+
+    /**
+     * The `appendString` method appends a string as a JSON string literal,
+     * quoted and escaped, or `null` for a `null` string.
+     *
+     * @param sb    the buffer to append to
+     * @param value the string, may be `null`
+     */
+    public static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
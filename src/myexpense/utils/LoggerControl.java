@@ -3,24 +3,55 @@
  */
 package myexpense.utils;
 
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.logging.FileHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
 
 /**
  * The `LoggerControl` class in Java sets up a file logger with specified log
  * file path and allows logging messages at different levels.
+ *
+ * Once `configureLogger` has run, messages are written asynchronously: the
+ * caller only puts a record in a bounded queue and a background thread
+ * writes the records in batches, flushing the file once per batch. When the
+ * queue is full, messages below WARNING are dropped (and counted) so the FX
+ * thread never waits on the disk, more severe ones are written by the
+ * caller. `-Dmyexpense.log.async=false` keeps the synchronous mode.
  */
 public class LoggerControl {
 
     private static Logger logger = Logger.getLogger(LoggerControl.class.getName());
 
+    // Records waiting for the writer thread, null in synchronous mode
+    private static volatile BlockingQueue<LogRecord> queue;
+    private static Thread writer;
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static final int QUEUE_SIZE = Integer.getInteger("myexpense.log.queueSize", 8_192);
+    private static final int BATCH_SIZE = 512;
+
+    // Queued by shutdown after the last record, the writer stops when it
+    // reads it. The writer is not interrupted, an interrupt during a write
+    // would close the event log file channel.
+    private static final LogRecord STOP = new LogRecord(Level.OFF, "stop");
+
     /**
      * The function `configureLogger` sets up a file logger in Java to log messages
      * to a specified log file path.
@@ -33,16 +64,30 @@ public class LoggerControl {
                 java.nio.file.Files.createDirectories(logPath);
             }
 
-            // Set up the FileHandler for the specified log file path
-            FileHandler fileHandler = new FileHandler("logs/MyExpense.log", true); // 'true' for appending logs
+            // Set up a buffered handler appending to the log file, it is
+            // flushed per batch by the writer thread (or per message when
+            // synchronous)
+            StreamHandler fileHandler = new StreamHandler(
+                    new BufferedOutputStream(new FileOutputStream("logs/MyExpense.log", true), 64 * 1024),
+                    new SimpleFormatter());
+            fileHandler.setLevel(Level.ALL);
 
-            // Create a simple formatter
-            SimpleFormatter formatter = new SimpleFormatter();
-            fileHandler.setFormatter(formatter);
-
-            // Add the FileHandler to the logger
+            // Add the handler to the logger
             logger.addHandler(fileHandler);
 
+            // Structured copy of the log, rotated and compressed, see
+            // EventLogReader to search it
+            if (Boolean.parseBoolean(System.getProperty("myexpense.eventlog", "true"))) {
+                logger.addHandler(new EventLogHandler(logPath,
+                        Long.getLong("myexpense.eventlog.maxBytes", 16L * 1024 * 1024),
+                        Long.getLong("myexpense.eventlog.maxAgeHours", 24) * 3_600_000L,
+                        Integer.getInteger("myexpense.eventlog.maxSegments", 90)));
+            }
+
+            if (Boolean.parseBoolean(System.getProperty("myexpense.log.async", "true"))) {
+                startWriter();
+            }
+
             // Set log level to INFO (or any other level you prefer)
             //logger.setLevel(Level.WARNING);
 
@@ -66,39 +111,132 @@ public class LoggerControl {
      *                FINER,
      */
     public static void logMessage(String message, Level level) {
+        if (!logger.isLoggable(level)) {
+            return;
+        }
         if (message != null && !message.isEmpty()) {
-            // Log the message based on the provided level
-            switch (level.getName()) {
-                case "SEVERE":
-                    logger.severe(message);
-                    break;
-                case "WARNING":
-                    logger.warning(message);
-                    break;
-                case "INFO":
-                    logger.info(message);
-                    break;
-                case "CONFIG":
-                    logger.config(message);
-                    break;
-                case "FINE":
-                    logger.fine(message);
-                    break;
-                case "FINER":
-                    logger.finer(message);
-                    break;
-                case "FINEST":
-                    logger.finest(message);
-                    break;
-                default:
-                    LoggerControl.logMessage("Invalid level: " + level.getName(), Level.WARNING);
-                    break;
-            }
+            publish(level, message);
         } else {
             LoggerControl.logMessage("Invalid message: " + message, Level.WARNING);
         }
     }
 
+    /**
+     * The function `logMessage` logs a message built only if the level is
+     * enabled, so disabled FINE messages cost no string concatenation.
+     *
+     * @param message builds the message, not called when the level is disabled
+     * @param level   the logging level of the message
+     */
+    public static void logMessage(Supplier<String> message, Level level) {
+        if (logger.isLoggable(level)) {
+            logMessage(message.get(), level);
+        }
+    }
+
+    // Method to hand a record to the writer thread, or write it right away
+    private static void publish(Level level, String message) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName(logger.getName());
+        // A known source avoids walking the caller's stack
+        record.setSourceClassName(null);
+
+        BlockingQueue<LogRecord> pending = queue;
+        if (pending != null) {
+            if (pending.offer(record)) {
+                return;
+            }
+            if (level.intValue() < Level.WARNING.intValue()) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        logger.log(record);
+        flush();
+    }
+
+    // Method to start the background writer, a no-op if it already runs
+    private static synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        BlockingQueue<LogRecord> pending = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        writer = new Thread(() -> drain(pending), "myexpense-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        queue = pending;
+        Runtime.getRuntime().addShutdownHook(new Thread(LoggerControl::shutdown, "myexpense-log-shutdown"));
+    }
+
+    // Method run by the writer thread: writes the records in batches and
+    // flushes the file once per batch
+    private static void drain(BlockingQueue<LogRecord> pending) {
+        List<LogRecord> batch = new ArrayList<>(BATCH_SIZE);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                // Not expected, shutdown stops the writer with STOP
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            pending.drainTo(batch, BATCH_SIZE - batch.size());
+            if (batch.remove(STOP)) {
+                running = false;
+            }
+            writeBatch(batch);
+        }
+    }
+
+    private static void writeBatch(List<LogRecord> batch) {
+        for (LogRecord record : batch) {
+            logger.log(record);
+        }
+        batch.clear();
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            logger.log(Level.WARNING, lost + " log messages dropped, the log queue was full.");
+        }
+        flush();
+    }
+
+    private static void flush() {
+        for (Handler handler : logger.getHandlers()) {
+            handler.flush();
+        }
+    }
+
+    /**
+     * The function `shutdown` stops the background writer after it has written
+     * the queued messages. Later messages are written synchronously.
+     */
+    public static void shutdown() {
+        Thread current;
+        BlockingQueue<LogRecord> pending;
+        synchronized (LoggerControl.class) {
+            current = writer;
+            pending = queue;
+            writer = null;
+            queue = null;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            if (pending.offer(STOP, 1_000, TimeUnit.MILLISECONDS)) {
+                current.join(1_000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Records offered while the writer was stopping
+        List<LogRecord> rest = new ArrayList<>();
+        pending.drainTo(rest);
+        rest.remove(STOP); // Left there if the writer did not stop in time
+        writeBatch(rest);
+    }
+
     /**
      * The `clearLogs` function clears the contents of a log file by writing an
      * empty string to it.
@@ -113,6 +251,12 @@ public class LoggerControl {
                 // Iterate through all files in the logs directory
                 Files.list(logsDir).forEach(file -> {
                     try {
+                        // Rotated event log segments are removed, the other
+                        // files are truncated
+                        if (file.getFileName().toString().endsWith(".gz")) {
+                            Files.delete(file);
+                            return;
+                        }
                         // Clear the log file by truncating its content
                         Files.write(file, new byte[0], StandardOpenOption.TRUNCATE_EXISTING);
                         logger.fine("Cleared log file: " + file.getFileName());
@@ -3,90 +3,250 @@ package myexpense.utils;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.logging.Level;
 
-public class PasswordHasher {
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 
-    private static final String HASH_ALGORITHM = "SHA-256";
-    private static final int SALT_LENGTH = 16; // Length of salt in bytes
+/**
+ * The `PasswordHasher` class hashes passwords with a key derivation function.
+ * The hash string carries the function and its cost, so stored hashes keep
+ * verifying after the defaults change and can be upgraded on login:
+ *
+ * <pre>
+ * pbkdf2-sha256$600000$&lt;salt, Base64&gt;$&lt;hash, Base64&gt;
+ * </pre>
+ *
+ * Hashes written before this format (a single salted SHA-256, Base64 encoded)
+ * are still verified and always reported by `needsRehash`.
+ *
+ * The function and the cost of new hashes are read from the
+ * `myexpense.password.algorithm` and `myexpense.password.iterations` system
+ * properties. `calibrate` (or `main`) finds the cost matching a target login
+ * latency on the current machine.
+ */
+public class PasswordHasher {
 
     /**
-     * The `hashPassword` function hashes a password with a random salt and returns
-     * both the salt and hashed password as a string.
-     * 
-     * @param password The password to be hashed.
-     * @return The hashed password combined with the salt, encoded in Base64.
+     * The `Algorithm` enum lists the supported key derivation functions, with
+     * the identifier used in the hash string.
      */
-    public static String hashPassword(String password) {
-        try {
-            // Generate a new random salt
-            byte[] salt = generateSalt();
+    public enum Algorithm {
+        PBKDF2_SHA256("pbkdf2-sha256", "PBKDF2WithHmacSHA256", 32),
+        PBKDF2_SHA512("pbkdf2-sha512", "PBKDF2WithHmacSHA512", 64);
 
-            // Create a MessageDigest instance for SHA-256
-            MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
+        private final String id;
+        private final String jceName;
+        private final int keyLength;
 
-            // Add the salt to the password
-            md.update(salt);
-            byte[] hashedBytes = md.digest(password.getBytes());
+        Algorithm(String id, String jceName, int keyLength) {
+            this.id = id;
+            this.jceName = jceName;
+            this.keyLength = keyLength;
+        }
 
-            // Combine the salt and the hashed password, and encode them in Base64
-            byte[] combined = new byte[salt.length + hashedBytes.length];
-            System.arraycopy(salt, 0, combined, 0, salt.length);
-            System.arraycopy(hashedBytes, 0, combined, salt.length, hashedBytes.length);
+        public String getId() {
+            return id;
+        }
 
-            return Base64.getEncoder().encodeToString(combined); // Return the combined salt and hash as Base64
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error: Hashing algorithm not available.", e);
+        static Algorithm fromId(String id) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.id.equals(id)) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+
+        byte[] derive(String password, byte[] salt, int iterations) {
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength * 8);
+            try {
+                return SecretKeyFactory.getInstance(jceName).generateSecret(spec).getEncoded();
+            } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+                throw new RuntimeException("Error: Hashing algorithm not available.", e);
+            } finally {
+                spec.clearPassword();
+            }
         }
     }
 
+    // OWASP recommendation for PBKDF2-HMAC-SHA256
+    public static final int DEFAULT_ITERATIONS = 600_000;
+
+    private static final String LEGACY_HASH_ALGORITHM = "SHA-256";
+    private static final int SALT_LENGTH = 16; // Length of salt in bytes
+    private static final String SEPARATOR = "$";
+
+    private static final Algorithm ALGORITHM = Algorithm.valueOf(
+            System.getProperty("myexpense.password.algorithm", Algorithm.PBKDF2_SHA256.name()));
+    private static final int ITERATIONS = Integer.getInteger("myexpense.password.iterations", DEFAULT_ITERATIONS);
+
+    // Creating a SecureRandom may read the entropy pool, one instance is
+    // shared, SecureRandom is thread-safe
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * The `hashPassword` function hashes a password with a random salt, using
+     * the configured function and cost.
+     *
+     * @param password The password to be hashed.
+     * @return The hash string, holding the function, cost, salt and hash.
+     */
+    public static String hashPassword(String password) {
+        return hashPassword(password, ALGORITHM, ITERATIONS);
+    }
+
+    /**
+     * The `hashPassword` function hashes a password with a random salt, using a
+     * given function and cost.
+     *
+     * @param password   The password to be hashed.
+     * @param algorithm  The key derivation function.
+     * @param iterations The number of iterations.
+     * @return The hash string, holding the function, cost, salt and hash.
+     */
+    public static String hashPassword(String password, Algorithm algorithm, int iterations) {
+        byte[] salt = generateSalt();
+        byte[] hash = algorithm.derive(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return algorithm.getId() + SEPARATOR + iterations + SEPARATOR + encoder.encodeToString(salt) + SEPARATOR
+                + encoder.encodeToString(hash);
+    }
+
     /**
      * The `verifyPassword` function checks if a provided password matches the
-     * stored
-     * hashed password.
-     * 
+     * stored hash, in either the current or the legacy format. The hashes are
+     * compared in constant time.
+     *
      * @param password   The password to verify.
-     * @param storedHash The stored hashed password with the salt.
+     * @param storedHash The stored hash string.
      * @return True if the password matches the stored hash, false otherwise.
      */
     public static boolean verifyPassword(String password, String storedHash) {
+        if (!storedHash.contains(SEPARATOR)) {
+            return verifyLegacyPassword(password, storedHash);
+        }
+
+        String[] parts = storedHash.split("\\$");
+        Algorithm algorithm = parts.length == 4 ? Algorithm.fromId(parts[0]) : null;
+        if (algorithm == null) {
+            LoggerControl.logMessage("Unknown password hash format", Level.WARNING);
+            return false;
+        }
         try {
-            // Decode the stored hash from Base64
-            byte[] storedHashBytes = Base64.getDecoder().decode(storedHash);
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, algorithm.derive(password, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            LoggerControl.logMessage("Invalid password hash: " + e.getMessage(), Level.WARNING);
+            return false;
+        }
+    }
+
+    /**
+     * The `needsRehash` function tells if a stored hash was made with another
+     * function or a lower cost than the configured ones, so it should be
+     * replaced after the next successful login.
+     *
+     * @param storedHash The stored hash string.
+     * @return True if the hash should be upgraded.
+     */
+    public static boolean needsRehash(String storedHash) {
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4 || Algorithm.fromId(parts[0]) != ALGORITHM) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(parts[1]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
 
-            // Extract the salt from the stored hash
-            byte[] salt = new byte[SALT_LENGTH];
-            System.arraycopy(storedHashBytes, 0, salt, 0, SALT_LENGTH);
+    /**
+     * The `calibrate` function finds the number of iterations for which one
+     * hash takes about a target time on this machine.
+     *
+     * @param algorithm The key derivation function.
+     * @param targetMs  The target time of one hash, in milliseconds.
+     * @return The number of iterations, rounded down to a thousand.
+     */
+    public static int calibrate(Algorithm algorithm, long targetMs) {
+        byte[] salt = generateSalt();
+        int iterations = 10_000;
+        long elapsed = 0;
+        // Grow the sample until it is long enough to time, the first rounds
+        // also warm up the JIT
+        while (elapsed < 50_000_000L && iterations < Integer.MAX_VALUE / 2) {
+            iterations *= 2;
+            long start = System.nanoTime();
+            algorithm.derive("calibration", salt, iterations);
+            elapsed = System.nanoTime() - start;
+        }
+        long target = (long) ((double) iterations * targetMs * 1_000_000L / elapsed);
+        return (int) Math.max(1_000, Math.min(Integer.MAX_VALUE, target) / 1_000 * 1_000);
+    }
 
-            // Create a MessageDigest instance for SHA-256
-            MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
+    /**
+     * The `verifyLegacyPassword` function checks a password against a hash of
+     * the previous format: Base64 of the salt followed by SHA-256(salt,
+     * password).
+     */
+    private static boolean verifyLegacyPassword(String password, String storedHash) {
+        try {
+            // Decode the stored hash from Base64
+            byte[] storedHashBytes = Base64.getDecoder().decode(storedHash);
+            if (storedHashBytes.length <= SALT_LENGTH) {
+                return false;
+            }
 
             // Add the salt to the password
-            md.update(salt);
+            MessageDigest md = MessageDigest.getInstance(LEGACY_HASH_ALGORITHM);
+            md.update(storedHashBytes, 0, SALT_LENGTH);
             byte[] hashedBytes = md.digest(password.getBytes());
 
-            // Compare the hashes
-            for (int i = 0; i < hashedBytes.length; i++) {
-                if (storedHashBytes[SALT_LENGTH + i] != hashedBytes[i]) {
-                    return false; // Password does not match
-                }
-            }
-
-            return true; // Password matches
+            return MessageDigest.isEqual(hashedBytes,
+                    Arrays.copyOfRange(storedHashBytes, SALT_LENGTH, storedHashBytes.length));
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("Error: Hashing algorithm not available.", e);
+        } catch (IllegalArgumentException e) {
+            LoggerControl.logMessage("Invalid password hash: " + e.getMessage(), Level.WARNING);
+            return false;
         }
     }
 
     /**
-     * Generates a random salt using SecureRandom.
-     * 
+     * Generates a random salt with the shared SecureRandom.
+     *
      * @return A byte array representing the generated salt.
      */
     private static byte[] generateSalt() {
         byte[] salt = new byte[SALT_LENGTH];
-        SecureRandom random = new SecureRandom();
         random.nextBytes(salt); // Fill the byte array with random bytes
         return salt;
     }
+
+    /**
+     * The `main` function prints the number of iterations for a target hash
+     * time: `PasswordHasher [targetMs] [algorithm]`, 250 ms and PBKDF2_SHA256 by
+     * default. Pass the result with `-Dmyexpense.password.iterations`.
+     */
+    public static void main(String[] args) {
+        long targetMs = args.length > 0 ? Long.parseLong(args[0]) : 250;
+        Algorithm algorithm = args.length > 1 ? Algorithm.valueOf(args[1]) : Algorithm.PBKDF2_SHA256;
+        int iterations = calibrate(algorithm, targetMs);
+
+        // Check the estimate with a few real hashes
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            hashPassword("calibration", algorithm, iterations);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(algorithm + ": " + iterations + " iterations, " + best / 1_000_000 + " ms per hash");
+    }
 }
@@ -0,0 +1,83 @@
+/**
+ * @author rahim
+ */
+package myexpense.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * The `StartupTimer` class records the startup phases of the application, as
+ * milliseconds since `main` started, and logs them at INFO. `report()` adds
+ * the time the JVM took to reach `main`.
+ */
+public class StartupTimer {
+    // Origin of the timings, set again by start()
+    private static volatile long startNanos = System.nanoTime();
+    private static volatile long startMillis = System.currentTimeMillis();
+    private static final List<String> phases = new ArrayList<>();
+
+    private StartupTimer() {
+    }
+
+    /**
+     * The `start` method sets the origin of the timings to now, it is called
+     * first in `main`.
+     */
+    public static void start() {
+        startMillis = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * The `mark` method records that a point of the startup is reached.
+     *
+     * @param name the name of the point, like "login window shown"
+     */
+    public static void mark(String name) {
+        record(name + " at " + elapsedMs() + " ms");
+    }
+
+    /**
+     * The `time` method runs a startup phase and records how long it took.
+     *
+     * @param name  the name of the phase
+     * @param phase the work of the phase
+     */
+    public static void time(String name, Runnable phase) {
+        long start = System.nanoTime();
+        phase.run();
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+        record(name + " took " + tookMs + " ms, done at " + elapsedMs() + " ms");
+    }
+
+    private static long elapsedMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static void record(String phase) {
+        synchronized (phases) {
+            phases.add(phase);
+        }
+        LoggerControl.logMessage(() -> "Startup: " + phase + " (" + Thread.currentThread().getName() + ")",
+                Level.INFO);
+    }
+
+    /**
+     * The `report` function returns every recorded phase, in order.
+     *
+     * @return one phase per line
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        ProcessHandle.current().info().startInstant().ifPresent(jvmStart -> sb.append("JVM to main: ")
+                .append(startMillis - jvmStart.toEpochMilli()).append(" ms\n"));
+        synchronized (phases) {
+            for (String phase : phases) {
+                sb.append(phase).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
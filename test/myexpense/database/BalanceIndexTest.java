@@ -0,0 +1,138 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests of the `BalanceIndex` Fenwick trees against brute-force sums.
+ */
+public class BalanceIndexTest {
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    // Per-day income and expense kept alongside the index, undated under null
+    private final TreeMap<Long, long[]> days = new TreeMap<>();
+    private final long[] undated = new long[2];
+    private final BalanceIndex index = new BalanceIndex();
+
+    private void add(LocalDate day, long incomeCents, long expenseCents) {
+        index.add(day, incomeCents, expenseCents);
+        long[] totals = day == null ? undated : days.computeIfAbsent(day.toEpochDay(), key -> new long[2]);
+        totals[0] += incomeCents;
+        totals[1] += expenseCents;
+    }
+
+    private long sum(LocalDate from, LocalDate to, int column) {
+        long sum = 0;
+        for (long[] totals : days.subMap(from.toEpochDay(), to.toEpochDay()).values()) {
+            sum += totals[column];
+        }
+        return sum;
+    }
+
+    private void check(LocalDate from, LocalDate to) {
+        String range = from + " to " + to;
+        assertEquals(range, sum(from, to, 0), index.income(from, to));
+        assertEquals(range, sum(from, to, 1), index.expense(from, to));
+        long before = undated[0] - undated[1];
+        for (long[] totals : days.headMap(to.toEpochDay()).values()) {
+            before += totals[0] - totals[1];
+        }
+        assertEquals("before " + to, before, index.balanceBefore(to));
+    }
+
+    // Checks every range between the given days, and beyond both ends
+    private void checkAll(List<LocalDate> probes) {
+        List<LocalDate> all = new ArrayList<>(probes);
+        all.add(LocalDate.of(1900, 1, 1));
+        all.add(LocalDate.of(2200, 1, 1));
+        for (LocalDate from : all) {
+            for (LocalDate to : all) {
+                if (!to.isBefore(from)) {
+                    check(from, to);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyIndexReadsZero() {
+        check(START, START.plusDays(10));
+        assertEquals(0, index.balanceBefore(START));
+    }
+
+    @Test
+    public void sumsRangesOfDays() {
+        add(START, 1_000, 0);
+        add(START.plusDays(1), 0, 300);
+        add(START.plusDays(1), 50, 0);
+        add(START.plusDays(40), 0, 7);
+        add(null, 20, 5);
+        assertEquals(1_050, index.income(START, START.plusDays(2)));
+        assertEquals(300, index.expense(START, START.plusDays(40)));
+        assertEquals(307, index.expense(START, START.plusDays(41)));
+        assertEquals(15, index.balanceBefore(START));
+        assertEquals(765, index.balanceBefore(START.plusDays(2)));
+        assertEquals(758, index.balanceBefore(START.plusDays(41)));
+        checkAll(List.of(START, START.plusDays(1), START.plusDays(2), START.plusDays(40), START.plusDays(41)));
+    }
+
+    @Test
+    public void growsOnBothSides() {
+        // The first window holds 1 024 days centred on the first one, the
+        // later days fall before and after it, then far after the doubled one
+        LocalDate[] order = { START, START.plusDays(600), START.minusDays(700), START.plusDays(3_000),
+                START.minusDays(9_000), START.plusDays(40_000) };
+        List<LocalDate> probes = new ArrayList<>();
+        long amount = 1;
+        for (LocalDate day : order) {
+            add(day, amount, 0);
+            add(day.plusDays(1), 0, amount * 3);
+            amount *= 10;
+            probes.add(day);
+            probes.add(day.plusDays(1));
+            probes.add(day.plusDays(2));
+            checkAll(probes);
+        }
+    }
+
+    @Test
+    public void matchesRandomAddsAndRemoves() {
+        SplittableRandom random = new SplittableRandom(24);
+        List<Object[]> added = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            if (!added.isEmpty() && random.nextInt(3) == 0) {
+                // Removal: the same amounts negated
+                Object[] entry = added.remove(random.nextInt(added.size()));
+                add((LocalDate) entry[0], -(long) entry[1], -(long) entry[2]);
+            } else {
+                LocalDate day = random.nextInt(50) == 0 ? null : START.plusDays(random.nextInt(-4_000, 4_000));
+                long cents = random.nextLong(1, 1_000_000);
+                boolean income = random.nextBoolean();
+                add(day, income ? cents : 0, income ? 0 : cents);
+                added.add(new Object[] { day, income ? cents : 0L, income ? 0L : cents });
+            }
+            if (i % 500 == 0) {
+                for (int j = 0; j < 200; j++) {
+                    LocalDate from = START.plusDays(random.nextInt(-4_500, 4_500));
+                    check(from, from.plusDays(random.nextInt(0, 2_000)));
+                }
+            }
+        }
+        while (!added.isEmpty()) {
+            Object[] entry = added.remove(added.size() - 1);
+            add((LocalDate) entry[0], -(long) entry[1], -(long) entry[2]);
+        }
+        check(START.minusDays(5_000), START.plusDays(5_000));
+        assertEquals(0, index.balanceBefore(START.plusDays(5_000)));
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import myexpense.database.QueryStats.LatencyHistogram;
+
+/**
+ * Tests of the `QueryStats.LatencyHistogram` buckets and percentiles.
+ */
+public class LatencyHistogramTest {
+
+    // The bucket of a value holds it, and is at most 12.5% wide
+    private static void checkBucket(long value) {
+        int bucket = LatencyHistogram.bucket(value);
+        long upper = LatencyHistogram.upperBound(bucket);
+        long lower = bucket == 0 ? 0 : LatencyHistogram.upperBound(bucket - 1) + 1;
+        assertTrue(value + " above its bucket " + upper, value <= upper);
+        assertTrue(value + " below its bucket " + lower, value >= lower);
+        assertTrue(value + " in a bucket too wide", upper - lower <= Math.max(1, lower / 8));
+    }
+
+    @Test
+    public void smallValuesHaveTheirOwnBucket() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, LatencyHistogram.upperBound(LatencyHistogram.bucket(value)));
+        }
+    }
+
+    @Test
+    public void bucketsHoldTheirValues() {
+        for (long value = 0; value < 100_000; value++) {
+            checkBucket(value);
+        }
+        for (int shift = 0; shift < 63; shift++) {
+            long power = 1L << shift;
+            checkBucket(power - 1);
+            checkBucket(power);
+            checkBucket(power + 1);
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 100_000; i++) {
+            checkBucket(random.nextLong(Long.MAX_VALUE));
+        }
+        checkBucket(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void bucketsAreOrdered() {
+        long previous = -1;
+        for (int bucket = 0; bucket <= LatencyHistogram.bucket(Long.MAX_VALUE); bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertTrue("bucket " + bucket, upper > previous);
+            assertEquals(bucket, LatencyHistogram.bucket(upper));
+            previous = upper;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketWidth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        assertEquals(1_000, histogram.count());
+        assertEquals(500_500_000, histogram.total());
+        assertEquals(1_000_000, histogram.max());
+        long p50 = histogram.percentile(0.50);
+        long p99 = histogram.percentile(0.99);
+        assertTrue("p50 " + p50, p50 >= 500_000 && p50 <= 500_000 * 9 / 8);
+        assertTrue("p99 " + p99, p99 >= 990_000 && p99 <= 1_000_000);
+        assertEquals(1_000_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void emptyAndResetHistogramsReadZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.5));
+        histogram.record(42);
+        histogram.record(-5);
+        assertEquals(2, histogram.count());
+        assertEquals(42, histogram.max());
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import myexpense.models.Money;
+import myexpense.models.Transaction;
+
+/**
+ * Tests of `DBQueries.getBalanceAt` and `DBQueries.getRunningBalances`, on a
+ * cached profile of a temporary database, against sums of the stored rows.
+ */
+public class RunningBalanceTest {
+    private static final LocalDateTime START = LocalDateTime.of(2015, 1, 1, 8, 0);
+    private static final int DAYS = 3_650;
+
+    private static Path file;
+    private final SplittableRandom random = new SplittableRandom(24);
+
+    @BeforeClass
+    public static void openDatabase() throws Exception {
+        file = Files.createTempFile("myexpense-test", ".db");
+        System.setProperty("myexpense.db.url", "jdbc:sqlite:" + file);
+        DBQueries.createTables();
+    }
+
+    @AfterClass
+    public static void closeDatabase() throws Exception {
+        DBConnection.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    // Rows of a profile in ledger order, read without the cache
+    private static List<Transaction> storedRows(int profileId) throws SQLException {
+        String sql = """
+                SELECT transaction_id, profile_id, transaction_type, amount, comment, transaction_date, category_id
+                FROM Transactions WHERE profile_id = ? ORDER BY transaction_date, transaction_id
+                """;
+        List<Transaction> rows = new ArrayList<>();
+        try (Connection conn = DBConnection.getReader(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, profileId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                TransactionRowMapper mapper = new TransactionRowMapper(rs);
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static long balanceAt(List<Transaction> rows, LocalDateTime asOf) {
+        long balance = 0;
+        for (Transaction transaction : rows) {
+            if (!transaction.date().isAfter(asOf)) {
+                balance += transaction.signedCents();
+            }
+        }
+        return balance;
+    }
+
+    private Transaction randomTransaction(int profileId) {
+        LocalDateTime date = START.plusDays(random.nextInt(DAYS)).plusMinutes(random.nextInt(4) * 30);
+        Transaction.Type type = random.nextInt(3) == 0 ? Transaction.Type.INCOME : Transaction.Type.EXPENSE;
+        return new Transaction(0, profileId, type, random.nextLong(1, 100_000), null, date);
+    }
+
+    // Compares the balances at the stored times, between them and beyond both
+    // ends, and the running balance of every page, with the sums of the rows
+    private void check(int accountId, int profileId) throws SQLException {
+        List<Transaction> rows = storedRows(profileId);
+        List<LocalDateTime> times = new ArrayList<>(List.of(START.minusYears(1), START.plusYears(20)));
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime time = rows.get(random.nextInt(rows.size())).date();
+            times.add(time);
+            times.add(time.minusSeconds(1));
+            times.add(time.plusHours(random.nextInt(-48, 48)));
+        }
+        for (LocalDateTime time : times) {
+            assertEquals("balance at " + time, Money.ofCents(balanceAt(rows, time)),
+                    DBQueries.getBalanceAt(accountId, profileId, time));
+        }
+
+        Map<Integer, Long> through = new HashMap<>();
+        long balance = 0;
+        for (Transaction transaction : rows) {
+            balance += transaction.signedCents();
+            through.put(transaction.id(), balance);
+        }
+        int seen = 0;
+        Transaction after = null;
+        while (true) {
+            List<Transaction> page = DBQueries.getTransactionsPage(accountId, profileId, after, 97);
+            if (page.isEmpty()) {
+                break;
+            }
+            long[] expected = new long[page.size()];
+            for (int i = 0; i < page.size(); i++) {
+                expected[i] = through.get(page.get(i).id());
+            }
+            assertArrayEquals("page after " + seen, expected,
+                    DBQueries.getRunningBalances(accountId, profileId, page));
+            seen += page.size();
+            after = page.get(page.size() - 1);
+        }
+        assertEquals(rows.size(), seen);
+    }
+
+    @Test
+    public void matchesSumsAcrossWrites() throws Exception {
+        int accountId = DBQueries.insertAccount("balance", "hash");
+        int profileId = DBQueries.insertProfile(accountId, "main");
+
+        // Ten years of rows: the day index of the loaded ledger grows from its
+        // first 1 024 days to cover them
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            batch.add(randomTransaction(profileId));
+        }
+        assertFalse(DBQueries.insertTransactions(batch, 500).hasFailures());
+        check(accountId, profileId);
+        assertTrue("profile not cached", LedgerCache.getStats().profiles() > 0);
+
+        // Dated now, past the window of the loaded ledger
+        List<Integer> inserted = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            inserted.add(DBQueries.insertTransaction(accountId, profileId, i % 4 == 0 ? "income" : "expense",
+                    Money.ofCents(random.nextLong(1, 100_000)), null));
+        }
+        check(accountId, profileId);
+
+        List<Transaction> rows = storedRows(profileId);
+        for (int i = 0; i < 200; i++) {
+            Transaction transaction = rows.remove(random.nextInt(rows.size()));
+            assertTrue(DBQueries.removeTransaction(accountId, profileId, transaction.id()));
+        }
+        for (int i = 0; i < 200; i++) {
+            Transaction transaction = rows.get(random.nextInt(rows.size()));
+            assertTrue(DBQueries.updateTransaction(accountId, profileId, transaction.id(),
+                    random.nextBoolean() ? "income" : "expense", Money.ofCents(random.nextLong(1, 100_000)), null));
+        }
+        assertTrue(DBQueries.removeTransaction(accountId, profileId, inserted.get(0)));
+        check(accountId, profileId);
+        assertTrue("profile not cached", LedgerCache.getStats().profiles() > 0);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * @author rahim
+ */
+package myexpense.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import myexpense.models.Transaction;
+
+/**
+ * Tests of `TransactionRowMapper`, on rows of an in-memory database.
+ */
+public class TransactionRowMapperTest {
+
+    private static List<Transaction> mapAll(String... rows) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE Transactions (
+                        transaction_id INTEGER PRIMARY KEY,
+                        profile_id INTEGER,
+                        transaction_type TEXT,
+                        amount INTEGER,
+                        comment TEXT,
+                        transaction_date TIMESTAMP,
+                        category_id INTEGER
+                    )
+                    """);
+            for (String row : rows) {
+                stmt.execute("INSERT INTO Transactions VALUES " + row);
+            }
+            List<Transaction> transactions = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM Transactions ORDER BY transaction_id")) {
+                TransactionRowMapper mapper = new TransactionRowMapper(rs);
+                while (rs.next()) {
+                    transactions.add(mapper.map(rs));
+                }
+            }
+            return transactions;
+        }
+    }
+
+    @Test
+    public void mapsNullCategoryToNull() throws SQLException {
+        List<Transaction> transactions = mapAll("(1, 1, 'income', 100, 'x', '2024-05-01 10:00:00', NULL)");
+        assertNull(transactions.get(0).categoryId());
+    }
+
+    @Test
+    public void mapsNullCategoryToNullWhateverTheDate() throws SQLException {
+        List<Transaction> transactions = mapAll(
+                "(1, 1, 'expense', 250, NULL, NULL, 3)",
+                "(2, 1, 'expense', 250, NULL, '2024-05-01 10:00:00', NULL)");
+        assertEquals(Integer.valueOf(3), transactions.get(0).categoryId());
+        assertNull(transactions.get(0).date());
+        assertNull(transactions.get(1).categoryId());
+    }
+
+    @Test
+    public void mapsEveryColumn() throws SQLException {
+        Transaction transaction = mapAll("(7, 2, 'expense', 1234, 'rent', '2024-05-01 10:20:30', 5)").get(0);
+        assertEquals(new Transaction(7, 2, Transaction.Type.EXPENSE, 1234, "rent",
+                LocalDateTime.of(2024, 5, 1, 10, 20, 30), 5), transaction);
+    }
+
+    @Test
+    public void parsesStoredDateFormats() {
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5), TransactionRowMapper.parseDate("2024-01-02 03:04:05"));
+        assertEquals(LocalDateTime.of(2024, 1, 2, 0, 0), TransactionRowMapper.parseDate("2024-01-02"));
+        assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5), TransactionRowMapper.parseDate("2024-01-02T03:04:05"));
+        assertNull(TransactionRowMapper.parseDate(null));
+    }
+
+    @Test
+    public void formatsLikeCurrentTimestamp() {
+        LocalDateTime date = LocalDateTime.of(2024, 12, 31, 23, 59, 58);
+        assertEquals("2024-12-31 23:59:58", TransactionRowMapper.formatDate(date));
+        assertEquals(date, TransactionRowMapper.parseDate(TransactionRowMapper.formatDate(date)));
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * @author rahim
+ */
+package myexpense.logic;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import myexpense.models.ChartPoint;
+import myexpense.models.PeriodTotal;
+
+/**
+ * Tests of the Largest-Triangle-Three-Buckets `ChartControl.downsample`.
+ */
+public class ChartControlTest {
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    private static List<PeriodTotal> days(long[] balances) {
+        List<PeriodTotal> periods = new ArrayList<>();
+        for (int i = 0; i < balances.length; i++) {
+            periods.add(new PeriodTotal(START.plusDays(i), 0, 0, balances[i]));
+        }
+        return periods;
+    }
+
+    private static void checkOrderedSubset(List<PeriodTotal> periods, List<ChartPoint> points) {
+        assertEquals(periods.get(0).start(), points.get(0).date());
+        assertEquals(periods.get(periods.size() - 1).start(), points.get(points.size() - 1).date());
+        for (int i = 1; i < points.size(); i++) {
+            assertTrue("points out of order at " + i, points.get(i).date().isAfter(points.get(i - 1).date()));
+        }
+        for (ChartPoint point : points) {
+            int index = (int) (point.date().toEpochDay() - START.toEpochDay());
+            assertEquals(periods.get(index).balanceCents(), point.valueCents());
+        }
+    }
+
+    @Test
+    public void keepsShortSeries() {
+        List<PeriodTotal> periods = days(new long[] { 5, -3, 8 });
+        List<ChartPoint> points = ChartControl.downsample(periods, PeriodTotal::balanceCents, 3);
+        assertEquals(3, points.size());
+        checkOrderedSubset(periods, points);
+    }
+
+    @Test
+    public void keepsEmptySeries() {
+        assertTrue(ChartControl.downsample(List.of(), PeriodTotal::balanceCents, 10).isEmpty());
+    }
+
+    @Test
+    public void reducesToMaxPoints() {
+        for (int size : new int[] { 4, 5, 11, 100, 1_001, 3_650 }) {
+            long[] balances = new long[size];
+            for (int i = 0; i < size; i++) {
+                balances[i] = Math.round(1_000 * Math.sin(i / 7.0)) + i;
+            }
+            List<PeriodTotal> periods = days(balances);
+            for (int maxPoints : new int[] { 3, 4, 10, 200 }) {
+                List<ChartPoint> points = ChartControl.downsample(periods, PeriodTotal::balanceCents, maxPoints);
+                assertEquals(size + " to " + maxPoints, Math.min(size, maxPoints), points.size());
+                checkOrderedSubset(periods, points);
+            }
+        }
+    }
+
+    @Test
+    public void keepsSpikes() {
+        long[] balances = new long[1_000];
+        balances[400] = 1_000_000;
+        balances[700] = -1_000_000;
+        List<PeriodTotal> periods = days(balances);
+        List<ChartPoint> points = ChartControl.downsample(periods, PeriodTotal::balanceCents, 20);
+        assertTrue(points.stream().anyMatch(point -> point.valueCents() == 1_000_000));
+        assertTrue(points.stream().anyMatch(point -> point.valueCents() == -1_000_000));
+    }
+}
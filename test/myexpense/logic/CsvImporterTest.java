@@ -0,0 +1,114 @@
+/**
+ * @author rahim
+ */
+package myexpense.logic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests of the CSV `RecordReader` and the date parsing of `CsvImporter`.
+ */
+public class CsvImporterTest {
+
+    private static CsvImporter.RecordReader reader(String text, int maxRecordLength) {
+        return new CsvImporter.RecordReader(new BufferedReader(new StringReader(text), 16), ',', maxRecordLength);
+    }
+
+    // Reads every record, a rejected record is recorded as "!<line>"
+    private static List<String> readAll(CsvImporter.RecordReader records) throws IOException {
+        List<String> result = new ArrayList<>();
+        while (true) {
+            List<String> fields;
+            try {
+                fields = records.next();
+            } catch (IllegalArgumentException e) {
+                result.add("!" + records.getLineNumber());
+                continue;
+            }
+            if (fields == null) {
+                return result;
+            }
+            result.add(String.join("|", fields) + "@" + records.getLineNumber());
+        }
+    }
+
+    @Test
+    public void readsPlainAndQuotedFields() throws IOException {
+        List<String> records = readAll(reader("a,b,c\n1,\"x, y\",3\n\n4,\"say \"\"hi\"\"\",\n", 1_000));
+        assertEquals(List.of("a|b|c@1", "1|x, y|3@2", "4|say \"hi\"|@4"), records);
+    }
+
+    @Test
+    public void readsLineBreaksInsideQuotes() throws IOException {
+        List<String> records = readAll(reader("1,\"first\nsecond\",3\n4,5,6\n", 1_000));
+        assertEquals(List.of("1|first\nsecond|3@1", "4|5|6@3"), records);
+    }
+
+    @Test
+    public void rejectsQuoteOpenAtTheEnd() throws IOException {
+        List<String> records = readAll(reader("1,2\n3,\"open\n5,6\n7,8\n", 1_000));
+        // The open quote costs its own line only, the next ones are read
+        assertEquals(List.of("1|2@1", "!2", "5|6@3", "7|8@4"), records);
+    }
+
+    @Test
+    public void rejectsQuotedFieldOverTheLimit() throws IOException {
+        StringBuilder text = new StringBuilder("1,\"open\n");
+        for (int i = 0; i < 1_000; i++) {
+            text.append(i).append(",row\n");
+        }
+        CsvImporter.RecordReader records = reader(text.toString(), 100);
+        try {
+            records.next();
+            fail("The open quote should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, records.getLineNumber());
+        }
+        assertEquals(List.of("0", "row"), records.next());
+        assertEquals(2, records.getLineNumber());
+    }
+
+    @Test
+    public void keepsQuotedFieldsUnderTheLimit() throws IOException {
+        String comment = "x".repeat(40) + "\n" + "y".repeat(40);
+        List<String> records = readAll(reader("1,\"" + comment + "\"\n", 100));
+        assertEquals(List.of("1|" + comment + "@1"), records);
+    }
+
+    @Test
+    public void returnsNullWhenEmpty() throws IOException {
+        assertNull(reader("", 100).next());
+        assertNull(reader("\n  \n", 100).next());
+    }
+
+    @Test
+    public void parsesDatesStrictly() {
+        assertEquals(LocalDateTime.of(2025, 1, 2, 0, 0), CsvImporter.parseDate("2025-01-02", null));
+        assertEquals(LocalDateTime.of(2025, 1, 2, 3, 4, 5), CsvImporter.parseDate("2025-01-02 03:04:05", null));
+        assertEquals(LocalDateTime.of(2025, 1, 2, 3, 4), CsvImporter.parseDate("2025-01-02T03:04", null));
+        assertEquals(LocalDateTime.of(2025, 1, 2, 0, 0),
+                CsvImporter.parseDate("02/01/2025", DateTimeFormatter.ofPattern("dd/MM/uuuu")));
+        for (String invalid : new String[] { "2025-02-30", "2025-01-0a", "20250101", "1735689600000",
+                "2025-13-01 00:00:00", "2025-01-01 24:00:00", "" }) {
+            try {
+                CsvImporter.parseDate(invalid, null);
+                fail("Accepted " + invalid);
+            } catch (DateTimeException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * @author rahim
+ */
+package myexpense.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests of `Money` parsing, formatting and rounding.
+ */
+public class MoneyTest {
+
+    @Test
+    public void parsesAmounts() {
+        assertEquals(1200, Money.parseCents("12"));
+        assertEquals(-350, Money.parseCents("-3.5"));
+        assertEquals(123456, Money.parseCents("1234.56"));
+        assertEquals(5, Money.parseCents("+.05"));
+        assertEquals(1200, Money.parseCents("12."));
+        assertEquals(0, Money.parseCents("-0"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsMoreThanTwoDecimals() {
+        Money.parseCents("1.234");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsLetters() {
+        Money.parseCents("12a");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsSignAlone() {
+        Money.parseCents("-");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsPointAlone() {
+        Money.parseCents(".");
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void rejectsOverflow() {
+        Money.parseCents("99999999999999999999");
+    }
+
+    @Test
+    public void formatsAmounts() {
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("0.05", Money.ofCents(5).toString());
+        assertEquals("-0.05", Money.ofCents(-5).toString());
+        assertEquals("-1234.50", Money.ofCents(-123450).toString());
+        assertEquals(Money.parse("-1234.5"), Money.parse(Money.ofCents(-123450).toString()));
+    }
+
+    @Test
+    public void roundsHalfAwayFromZero() {
+        assertEquals(1, Money.of(0.005).cents());
+        assertEquals(-1, Money.of(-0.005).cents());
+        assertEquals(101, Money.of(1.005).cents());
+        assertEquals(-101, Money.of(-1.005).cents());
+        assertEquals(0, Money.of(0.004).cents());
+        assertEquals(-123457, Money.of(-1234.565).cents());
+        assertSame(Money.ZERO, Money.of(-0.0));
+    }
+
+    @Test
+    public void timesRoundsHalfAwayFromZero() {
+        assertEquals(1, Money.ofCents(1).times(0.5).cents());
+        assertEquals(-1, Money.ofCents(-1).times(0.5).cents());
+        assertEquals(-2, Money.ofCents(-3).times(0.5).cents());
+        assertEquals(-1, Money.ofCents(-3).times(0.4).cents());
+        assertEquals(250, Money.ofCents(100).times(2.5).cents());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonFiniteAmounts() {
+        Money.of(Double.NaN);
+    }
+
+    @Test
+    public void addsExactly() {
+        Money sum = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            sum = sum.plus(Money.parse("0.10"));
+        }
+        assertEquals(Money.parse("1.00"), sum);
+        assertEquals(Money.ofCents(-100), sum.negate());
+        assertEquals(Money.ZERO, sum.minus(sum));
+    }
+}
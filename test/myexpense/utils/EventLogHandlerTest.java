@@ -0,0 +1,144 @@
+/**
+ * @author rahim
+ */
+package myexpense.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of `EventLogHandler` and `EventLogReader`: records written by the
+ * handler, rotated or not, are read back unchanged.
+ */
+public class EventLogHandlerTest {
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("eventlog");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static LogRecord record(long millis, Level level, String message) {
+        LogRecord record = new LogRecord(level, message);
+        record.setInstant(Instant.ofEpochMilli(millis));
+        record.setLoggerName("test");
+        return record;
+    }
+
+    private List<EventLogReader.Event> readAll() throws IOException {
+        List<EventLogReader.Event> events = new ArrayList<>();
+        EventLogReader.scan(dir, Long.MIN_VALUE, Long.MAX_VALUE, null, null, events::add);
+        return events;
+    }
+
+    private int segments() throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir,
+                EventLogHandler.SEGMENT_PREFIX + "*" + EventLogHandler.SEGMENT_SUFFIX)) {
+            for (Path ignored : stream) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        EventLogHandler handler = new EventLogHandler(dir, 1 << 20, Long.MAX_VALUE, 10);
+        handler.publish(record(1_000, Level.INFO, "plain"));
+        handler.publish(record(2_000, Level.WARNING, "quote \" backslash \\ tab \t line\nend \u0001 é"));
+        handler.close();
+
+        List<EventLogReader.Event> events = readAll();
+        assertEquals(2, events.size());
+        assertEquals(1_000, events.get(0).millis());
+        assertEquals(Level.INFO, events.get(0).level());
+        assertEquals("test", events.get(0).logger());
+        assertEquals("plain", events.get(0).message());
+        assertNull(events.get(0).thrown());
+        assertEquals(Level.WARNING, events.get(1).level());
+        assertEquals("quote \" backslash \\ tab \t line\nend \u0001 é", events.get(1).message());
+    }
+
+    @Test
+    public void rotatesAndReadsEverySegment() throws IOException {
+        EventLogHandler handler = new EventLogHandler(dir, 200, Long.MAX_VALUE, 100);
+        for (int i = 0; i < 50; i++) {
+            handler.publish(record(1_000 + i, Level.INFO, "message " + i));
+        }
+        handler.close();
+
+        assertTrue(segments() > 1);
+        List<EventLogReader.Event> events = readAll();
+        assertEquals(50, events.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("message " + i, events.get(i).message());
+        }
+    }
+
+    @Test
+    public void filtersByTimeAndLevel() throws IOException {
+        EventLogHandler handler = new EventLogHandler(dir, 200, Long.MAX_VALUE, 100);
+        for (int i = 0; i < 20; i++) {
+            handler.publish(record(1_000 * i, i % 2 == 0 ? Level.INFO : Level.SEVERE, "message " + i));
+        }
+        handler.close();
+
+        List<EventLogReader.Event> events = new ArrayList<>();
+        long count = EventLogReader.scan(dir, 5_000, 9_000, Level.WARNING, null, events::add);
+        assertEquals(3, count);
+        assertEquals("message 5", events.get(0).message());
+        assertEquals("message 7", events.get(1).message());
+        assertEquals("message 9", events.get(2).message());
+    }
+
+    @Test
+    public void keepsWritingWhenRotationFails() throws IOException {
+        EventLogHandler handler = new EventLogHandler(dir, 100, Long.MAX_VALUE, 100);
+        handler.setErrorManager(new ErrorManager() {
+            @Override
+            public synchronized void error(String msg, Exception ex, int code) {
+                // Expected, the active segment is gone
+            }
+        });
+        handler.publish(record(1_000, Level.INFO, "before the failed rotation, long enough to rotate"));
+        handler.flush();
+        // The segment cannot be compressed any more, the rotation fails
+        Files.delete(dir.resolve(EventLogHandler.ACTIVE_SEGMENT));
+        handler.publish(record(2_000, Level.INFO, "after the failed rotation"));
+        handler.publish(record(3_000, Level.INFO, "still written"));
+        handler.close();
+
+        List<EventLogReader.Event> events = readAll();
+        assertEquals(2, events.size());
+        assertEquals("after the failed rotation", events.get(0).message());
+        assertEquals("still written", events.get(1).message());
+    }
+}